@@ -0,0 +1,29 @@
+package com.loginsys.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like JMH's own launcher, accepting the same options, but writes the results
+ * to {@code jmh-result.json} unless another format or file is asked for with {@code -rf} / {@code -rff}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+
+        if (!commandLine.getResult().hasValue()) {
+            options.result("jmh-result.json");
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.loginsys.benchmarks;
+
+import com.loginsys.database.index.CompactUserIndex;
+import com.loginsys.database.property.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups in a {@code CompactUserIndex}, on and off heap, with lookups in the {@code ConcurrentHashMap} of
+ * strings it replaces. Run with {@code -prof gc} to check that the compact lookups do not allocate; the memory of
+ * the index is printed at setup.
+ * <p>
+ * Lookups use copies of the stored strings, like the values parsed from a request, so that neither side gets away with
+ * an identity comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=1g"})
+@State(Scope.Benchmark)
+public class CompactUserIndexBenchmark {
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private static final int PROBES = 4096;
+
+    private String[] ids;
+    private String[] emails;
+    private String[] idProbes;
+    private String[] emailProbes;
+    private CompactUserIndex index;
+    private ConcurrentHashMap<String, Integer> map;
+    private int next = 0;
+
+    // stands for the store's rows: every candidate is compared with the looked up value
+    private final CompactUserIndex.Rows rows = (row, property, value) ->
+            (property == Property.ID ? ids[row] : emails[row]).equals(value);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        ids = new String[users];
+        emails = new String[users];
+        index = new CompactUserIndex(users, offHeap);
+        map = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < users; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+            emails[i] = "user" + i + "@example.com";
+
+            index.add(Property.ID, ids[i], i);
+            index.add(Property.EMAIL, emails[i], i);
+            index.add(Property.USERNAME, "user" + i, i);
+            map.put(emails[i], i);
+        }
+
+        idProbes = new String[PROBES];
+        emailProbes = new String[PROBES];
+
+        for (int i = 0; i < PROBES; i++) {
+            int user = random.nextInt(users);
+            idProbes[i] = new String(ids[user]);
+            emailProbes[i] = new String(emails[user]);
+        }
+
+        System.out.println("\nindex " + index.stats());
+    }
+
+    @Benchmark
+    public int compactByEmail() {
+        return index.find(Property.EMAIL, emailProbes[nextProbe()], rows);
+    }
+
+    @Benchmark
+    public int compactById() {
+        return index.find(Property.ID, idProbes[nextProbe()], rows);
+    }
+
+    @Benchmark
+    public Integer mapByEmail() {
+        return map.get(emailProbes[nextProbe()]);
+    }
+
+    private int nextProbe() {
+        next = (next + 1) & (PROBES - 1);
+        return next;
+    }
+}
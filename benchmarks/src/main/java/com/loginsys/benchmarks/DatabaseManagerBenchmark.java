@@ -0,0 +1,34 @@
+package com.loginsys.benchmarks;
+
+import com.loginsys.database.DatabaseManager;
+import com.loginsys.database.property.Property;
+import com.loginsys.management.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseManagerBenchmark {
+
+    @Param({"ID", "EMAIL", "USERNAME"})
+    public Property property;
+
+    @Benchmark
+    public User retrieveUserBy(SeededDatabase database) {
+        return DatabaseManager.retrieveUserBy(property, SeededDatabase.key(property, database.randomUser()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.loginsys.benchmarks;
+
+import com.loginsys.metrics.Operation;
+import com.loginsys.metrics.OperationMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost that {@code OperationMetrics} adds to every instrumented call, enabled and disabled,
+ * from one thread and from eight threads recording the same operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private OperationMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        metrics = new OperationMetrics(enabled, Duration.ZERO);
+    }
+
+    @Benchmark
+    public void record() {
+        long start = metrics.start();
+        metrics.record(Operation.RETRIEVE_USER, start, true, null);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordContended() {
+        long start = metrics.start();
+        metrics.record(Operation.RETRIEVE_USER, start, true, null);
+    }
+}
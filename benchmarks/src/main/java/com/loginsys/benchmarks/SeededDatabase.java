@@ -0,0 +1,156 @@
+package com.loginsys.benchmarks;
+
+import com.loginsys.database.DatabaseManager;
+import com.loginsys.database.property.Property;
+import com.loginsys.database.schema.IdCodec;
+import com.loginsys.database.schema.SchemaMigrator;
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.security.Pbkdf2PasswordHasher;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A temporary SQLite database seeded with {@code users} deterministic users, which the application is pointed to
+ * through the {@code loginsys.database.url} system property before it is first used in the benchmark fork.
+ * <p>
+ * Seeding millions of rows takes a while, so seeded databases are kept in {@code java.io.tmpdir/loginsys-benchmarks}
+ * and reused by the following runs. With {@code store=memory} the users are instead inserted into the in-memory store
+ * at the start of every fork, to measure the application logic without any disk I/O.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    /**
+     * PBKDF2 iterations of the seeded and registered passwords. It is kept low so that the benchmarks measure the
+     * persistence path and not the hashing cost, which is a tunable of its own.
+     */
+    public static final int HASH_ITERATIONS = 1_000;
+
+    public static final String PASSWORD = "benchmark-password";
+
+    private static final long ID_PREFIX = 0xbe7c_4a11_0000_0000L;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int TRANSACTION_SIZE = 200_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int users;
+
+    @Param({"sqlite"})
+    public String store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        System.setProperty("loginsys.store", store);
+        System.setProperty("loginsys.hash.iterations", String.valueOf(HASH_ITERATIONS));
+
+        // keep the audit segments of the benchmarked logins out of the working directory
+        if (System.getProperty("loginsys.audit.directory") == null) {
+            System.setProperty("loginsys.audit.directory", Path.of(System.getProperty("java.io.tmpdir"), "loginsys-benchmarks", "audit").toString());
+        }
+
+        if (store.equals("memory")) {
+            seedInMemory();
+            return;
+        }
+
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"), "loginsys-benchmarks");
+        Files.createDirectories(directory);
+
+        Path database = directory.resolve("users-" + users + ".db");
+        Path seeded = directory.resolve("users-" + users + ".seeded");
+        String url = "jdbc:sqlite:" + database;
+
+        if (!Files.exists(seeded)) {
+            Files.deleteIfExists(database);
+            seed(url);
+            Files.createFile(seeded);
+        }
+
+        System.setProperty("loginsys.database.url", url);
+    }
+
+    public int randomUser() {
+        return ThreadLocalRandom.current().nextInt(users);
+    }
+
+    public static String id(int user) {
+        return new UUID(ID_PREFIX, user).toString();
+    }
+
+    public static String email(int user) {
+        return "user" + user + "@bench.io";
+    }
+
+    public static String username(int user) {
+        return "user" + user;
+    }
+
+    public static String key(Property property, int user) {
+        return switch (property) {
+            case ID -> id(user);
+            case EMAIL -> email(user);
+            case USERNAME -> username(user);
+            case PASSWORD -> throw new IllegalArgumentException("Users are not searchable by password");
+        };
+    }
+
+    private void seedInMemory() {
+        String password = new Pbkdf2PasswordHasher(HASH_ITERATIONS, 32).hash(PASSWORD);
+        List<UserSnapshot> batch = new ArrayList<>(BATCH_SIZE);
+
+        for (int user = 0; user < users; user++) {
+            batch.add(new UserSnapshot(id(user), email(user), username(user), password));
+
+            if (batch.size() == BATCH_SIZE || user == users - 1) {
+                DatabaseManager.insertUsersIfAbsent(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void seed(String url) throws SQLException {
+        SchemaMigrator.migrate(url);
+
+        String password = new Pbkdf2PasswordHasher(HASH_ITERATIONS, 32).hash(PASSWORD);
+
+        try (Connection connection = DriverManager.getConnection(url)) {
+            try (Statement stm = connection.createStatement()) {
+                stm.execute("pragma synchronous = off");
+            }
+
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement stm = connection.prepareStatement("insert into Users (id, email, username, password) values (?,?,?,?)")) {
+                for (int user = 0; user < users; user++) {
+                    stm.setObject(1, IdCodec.encode(id(user)));
+                    stm.setString(2, email(user));
+                    stm.setString(3, username(user));
+                    stm.setString(4, password);
+                    stm.addBatch();
+
+                    if ((user + 1) % BATCH_SIZE == 0) stm.executeBatch();
+                    if ((user + 1) % TRANSACTION_SIZE == 0) connection.commit();
+                }
+
+                stm.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.loginsys.benchmarks;
+
+import com.loginsys.management.UsersManager;
+import com.loginsys.management.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UsersManagerBenchmark {
+
+    private final AtomicLong registered = new AtomicLong();
+    private String runPrefix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // registrations are kept in the reused database, so every run needs its own names
+        runPrefix = Long.toString(System.currentTimeMillis(), 36);
+    }
+
+    @Benchmark
+    public void register(SeededDatabase database) {
+        String name = "r" + runPrefix + "_" + registered.incrementAndGet();
+        UsersManager.register(name + "@bench.io", name, SeededDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    public User authByEmailAndPassword(SeededDatabase database) {
+        return UsersManager.authByEmailAndPassword(SeededDatabase.email(database.randomUser()), SeededDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    public User authByUsernameAndPassword(SeededDatabase database) {
+        return UsersManager.authByUsernameAndPassword(SeededDatabase.username(database.randomUser()), SeededDatabase.PASSWORD);
+    }
+}
@@ -0,0 +1,76 @@
+package com.loginsys.benchmarks;
+
+import com.loginsys.management.user.CredentialValidator;
+import com.loginsys.management.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code User} patterns with {@code CredentialValidator} on valid and invalid inputs.
+ * Run with {@code -prof gc} to compare the allocation rates too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidatorBenchmark {
+
+    @Param({"valid", "invalid"})
+    public String input;
+
+    private String email;
+    private String username;
+    private String password;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boolean valid = input.equals("valid");
+        email = valid ? "john.doe_1984@mail.example.com" : "john.doe_1984@mail.example.comm";
+        username = valid ? "john_doe_1984" : "john-doe-1984";
+        password = valid ? "correct horse battery staple" : "short password";
+    }
+
+    @Benchmark
+    public boolean emailRegex() {
+        return User.EMAIL_CHECKER.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean emailValidator() {
+        return CredentialValidator.isValidEmail(email);
+    }
+
+    @Benchmark
+    public boolean usernameRegex() {
+        return User.USERNAME_CHECKER.matcher(username).matches();
+    }
+
+    @Benchmark
+    public boolean usernameValidator() {
+        return CredentialValidator.isValidUsername(username);
+    }
+
+    @Benchmark
+    public boolean passwordRegex() {
+        return User.PASSWORD_CHECKER.matcher(password).matches();
+    }
+
+    @Benchmark
+    public boolean passwordValidator() {
+        return CredentialValidator.isValidPassword(password);
+    }
+}
@@ -1,5 +1,8 @@
 package com.loginsys;
 
+import com.loginsys.management.AsyncAuthenticationService;
+import com.loginsys.management.AuthenticationService;
+import com.loginsys.management.session.Session;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -12,6 +15,9 @@ public class App extends Application {
 
     private static Scene scene;
 
+    private static final AsyncAuthenticationService authentication = new AsyncAuthenticationService(new AuthenticationService());
+    private static Session session;
+
     public static void main(String[] args) {
         App.launch();
     }
@@ -25,10 +31,27 @@ public class App extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        authentication.close();
+    }
+
     static void setRoot(String fxml) throws IOException {
         scene.setRoot(loadFXML(fxml));
     }
 
+    static AsyncAuthenticationService authentication() {
+        return authentication;
+    }
+
+    static Session session() {
+        return session;
+    }
+
+    static void setSession(Session session) {
+        App.session = session;
+    }
+
     private static Parent loadFXML(String fxml) throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource(fxml + ".fxml"));
         return fxmlLoader.load();
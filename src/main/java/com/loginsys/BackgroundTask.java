@@ -0,0 +1,72 @@
+package com.loginsys;
+
+import javafx.application.Platform;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Binds a background operation to the view which started it: while the operation runs, the given nodes are disabled
+ * and the cursor shows that the application is busy; once it completes, the outcome is handled on the JavaFX application
+ * thread. Cancelled operations (e.g. because the user navigated away) are silently dropped.
+ */
+final class BackgroundTask {
+
+    private BackgroundTask() {
+    }
+
+    static <T> CompletableFuture<T> run(CompletableFuture<T> operation, List<? extends Node> busy, Consumer<T> onSuccess) {
+        return run(operation, busy, onSuccess, BackgroundTask::showError);
+    }
+
+    static <T> CompletableFuture<T> run(CompletableFuture<T> operation, List<? extends Node> busy,
+                                        Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+
+        setBusy(busy, true);
+
+        operation.whenCompleteAsync((result, error) -> {
+            setBusy(busy, false);
+
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+
+            if (cause instanceof CancellationException) {
+                return;
+            }
+
+            if (cause != null) {
+                onFailure.accept(cause);
+            }
+
+            else {
+                onSuccess.accept(result);
+            }
+        }, Platform::runLater);
+
+        return operation;
+    }
+
+    private static void setBusy(List<? extends Node> nodes, boolean busy) {
+        for (Node node : nodes) {
+            node.setDisable(busy);
+
+            if (node.getScene() != null) {
+                node.getScene().setCursor(busy ? Cursor.WAIT : Cursor.DEFAULT);
+            }
+        }
+    }
+
+    private static void showError(Throwable error) {
+        new Alert(
+                Alert.AlertType.ERROR,
+                error.getMessage(),
+                ButtonType.OK
+        ).showAndWait();
+    }
+}
@@ -1,13 +1,15 @@
 package com.loginsys;
 
-import com.loginsys.management.UsersManager;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 public class SignupViewController {
@@ -15,21 +17,27 @@ public class SignupViewController {
     @FXML TextField email;
     @FXML TextField username;
     @FXML PasswordField password;
+    @FXML Button signup;
 
-    @FXML void signup() throws IOException {
+    private CompletableFuture<?> pending = CompletableFuture.completedFuture(null);
+
+    @FXML void signup() {
         String email = this.email.getText();
         String username = this.username.getText();
         String password = this.password.getText();
 
-        try {
-            UsersManager.register(email, username, password);
-            App.setRoot("login_view");
-            new Alert(Alert.AlertType.CONFIRMATION, "Successfully registered!", ButtonType.OK).showAndWait();
-        }
-
-        catch (RuntimeException e) {
-            new Alert(Alert.AlertType.ERROR, e.getMessage(), ButtonType.OK).showAndWait();
-        }
+        pending = BackgroundTask.run(
+                App.authentication().register(email, username, password),
+                List.of(this.email, this.username, this.password, signup),
+                registered -> {
+                    try {
+                        App.setRoot("login_view");
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    new Alert(Alert.AlertType.CONFIRMATION, "Successfully registered!", ButtonType.OK).showAndWait();
+                }
+        );
     }
 
     @FXML void cancel() {
@@ -39,6 +47,7 @@ public class SignupViewController {
     }
 
     @FXML void login() throws IOException {
+        pending.cancel(false);
         App.setRoot("login_view");
     }
 }
@@ -1,21 +1,22 @@
 package com.loginsys;
 
 import com.loginsys.database.property.Property;
-import com.loginsys.management.UsersManager;
-import com.loginsys.management.user.User;
+import com.loginsys.management.user.CredentialValidator;
+import com.loginsys.management.user.UserSnapshot;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.Region;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
-import static com.loginsys.database.DatabaseManager.retrieveUserBy;
-import static com.loginsys.management.UsersManager.currentlyLoggedInUser;
-
 public class UserDashboardController {
 
     @FXML TextField email;
@@ -23,51 +24,88 @@ public class UserDashboardController {
     @FXML PasswordField oldPassword;
     @FXML PasswordField newPassword;
     @FXML PasswordField confirmNewPassword;
+    @FXML Button applyEmail;
+    @FXML Button applyUsername;
+    @FXML Button applyPassword;
+    @FXML Button delete;
+
+    private final String token = App.session().token();
+    private UserSnapshot profile;
+    private CompletableFuture<?> pending = CompletableFuture.completedFuture(null);
 
     @FXML void initialize() {
-        email.setText(currentlyLoggedInUser.getEmail());
-        username.setText(currentlyLoggedInUser.getUsername());
+        reloadProfile();
+    }
+
+    private List<Node> form() {
+        return List.of(email, username, oldPassword, newPassword, confirmNewPassword, applyEmail, applyUsername, applyPassword, delete);
+    }
+
+    private List<Node> editControls() {
+        return List.of(email, username, oldPassword, newPassword, confirmNewPassword, applyEmail, applyUsername, applyPassword);
+    }
+
+    private void reloadProfile() {
+        pending = BackgroundTask.run(
+                App.authentication().profile(token),
+                form(),
+                loaded -> {
+                    profile = loaded;
+                    email.setText(profile.email());
+                    username.setText(profile.username());
+                },
+                error -> {
+                    // edits are compared with the profile: without one, only logging out or deleting the account is left
+                    profile = null;
+                    editControls().forEach(node -> node.setDisable(true));
+                    new Alert(
+                            Alert.AlertType.ERROR,
+                            "Cannot load your profile: " + error.getMessage(),
+                            ButtonType.OK
+                    ).showAndWait();
+                }
+        );
     }
 
     void updateProperty(Property property, String updated) {
-        String current = currentlyLoggedInUser.get(property);
-        if (current.equals(updated)) {
-            new Alert(
-                    Alert.AlertType.INFORMATION,
-                    "Nothing changed.",
-                    ButtonType.OK
-            ).showAndWait();
+        if (profile == null) {
+            new Alert(Alert.AlertType.ERROR, "Your profile is not loaded.", ButtonType.OK).showAndWait();
+            return;
         }
 
-        else if (property.searchable && retrieveUserBy(property, updated) != null) {
+        if (property != Property.PASSWORD && profile.get(property).equals(updated)) {
             new Alert(
-                    Alert.AlertType.ERROR,
-                    "Already taken " + property.value,
+                    Alert.AlertType.INFORMATION,
+                    "Nothing changed.",
                     ButtonType.OK
             ).showAndWait();
+            return;
         }
 
-        else {
-            try {
-                currentlyLoggedInUser.set(property, updated);
-                new Alert(Alert.AlertType.CONFIRMATION, "Successfully updated your " + property.value, ButtonType.OK).showAndWait();
-            } catch (RuntimeException e) {
-                new Alert(
-                        Alert.AlertType.ERROR,
-                        e.getMessage(),
-                        ButtonType.OK
-                ).showAndWait();
-            }
-        }
-
-        Stream.of(oldPassword, newPassword, confirmNewPassword).forEach(TextField::clear);
-        email.setText(currentlyLoggedInUser.getEmail());
-        username.setText(currentlyLoggedInUser.getUsername());
+        // availability and validity are checked by the service, which reports an already taken email or username
+        pending = BackgroundTask.run(
+                App.authentication().update(token, property, updated),
+                form(),
+                done -> {
+                    new Alert(Alert.AlertType.CONFIRMATION, "Successfully updated your " + property.value, ButtonType.OK).showAndWait();
+                    Stream.of(oldPassword, newPassword, confirmNewPassword).forEach(TextField::clear);
+                    reloadProfile();
+                },
+                error -> {
+                    new Alert(
+                            Alert.AlertType.ERROR,
+                            error.getMessage(),
+                            ButtonType.OK
+                    ).showAndWait();
+                    Stream.of(oldPassword, newPassword, confirmNewPassword).forEach(TextField::clear);
+                    reloadProfile();
+                }
+        );
     }
 
     @FXML void updateEmailAddress() {
 
-        if (!User.EMAIL_CHECKER.matcher(email.getText()).matches()) {
+        if (!CredentialValidator.isValidEmail(email.getText())) {
             new Alert(Alert.AlertType.ERROR, "Invalid email", ButtonType.OK).showAndWait();
             return;
         }
@@ -80,7 +118,7 @@ public class UserDashboardController {
 
     @FXML void updateUsername() {
 
-        if (!User.USERNAME_CHECKER.matcher(username.getText()).matches()) {
+        if (!CredentialValidator.isValidUsername(username.getText())) {
             new Alert(Alert.AlertType.ERROR, "Invalid username", ButtonType.OK).showAndWait();
             return;
         }
@@ -96,26 +134,36 @@ public class UserDashboardController {
         var updated = newPassword.getText();
         var confirmed = confirmNewPassword.getText();
 
-        if (old.equals(currentlyLoggedInUser.getPassword())) {
-            if (User.PASSWORD_CHECKER.matcher(updated).matches()) {
-                if (updated.equals(confirmed)) {
-                    updateProperty(Property.PASSWORD, updated);
-                } else {
-                    new Alert(Alert.AlertType.ERROR, "Your new password doesn't matches its confirmation.", ButtonType.OK).showAndWait();
+        pending = BackgroundTask.run(
+                App.authentication().verifyPassword(token, old),
+                form(),
+                verified -> {
+                    if (verified) {
+                        if (CredentialValidator.isValidPassword(updated)) {
+                            if (updated.equals(old)) {
+                                new Alert(Alert.AlertType.INFORMATION, "Nothing changed.", ButtonType.OK).showAndWait();
+                            } else if (updated.equals(confirmed)) {
+                                updateProperty(Property.PASSWORD, updated);
+                                return;
+                            } else {
+                                new Alert(Alert.AlertType.ERROR, "Your new password doesn't matches its confirmation.", ButtonType.OK).showAndWait();
+                            }
+                        } else {
+                            new Alert(Alert.AlertType.ERROR, "Your entered an invalid password.", ButtonType.OK).showAndWait();
+                        }
+                    } else {
+                        new Alert(Alert.AlertType.ERROR, "Your current password (old password field) is wrong. Try again.", ButtonType.OK).showAndWait();
+                    }
+
+                    Stream.of(oldPassword, newPassword, confirmNewPassword).forEach(TextField::clear);
                 }
-            } else {
-                new Alert(Alert.AlertType.ERROR, "Your entered an invalid password.", ButtonType.OK).showAndWait();
-            }
-        } else {
-            new Alert(Alert.AlertType.ERROR, "Your current password (old password field) is wrong. Try again.", ButtonType.OK).showAndWait();
-        }
-
-        Stream.of(oldPassword, newPassword, confirmNewPassword).forEach(TextField::clear);
-
+        );
     }
 
     @FXML void logout() throws IOException {
-        currentlyLoggedInUser = null;
+        pending.cancel(false);
+        App.authentication().logout(token);
+        App.setSession(null);
         App.setRoot("login_view");
     }
 
@@ -131,12 +179,18 @@ public class UserDashboardController {
 
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.YES) {
-                UsersManager.delete(currentlyLoggedInUser.id());
-                try {
-                    logout();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                pending = BackgroundTask.run(
+                        App.authentication().deleteAccount(token),
+                        form(),
+                        deleted -> {
+                            App.setSession(null);
+                            try {
+                                App.setRoot("login_view");
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                );
             }
         });
     }
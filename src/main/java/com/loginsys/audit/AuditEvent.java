@@ -0,0 +1,21 @@
+package com.loginsys.audit;
+
+import java.time.Instant;
+
+/**
+ * An entry of the audit log.
+ *
+ * @param time          When the event happened, in milliseconds since the epoch.
+ * @param type          What happened.
+ * @param userId        The user concerned; null if unknown, e.g. a failed login with an unknown email.
+ * @param subject       What the event was about: the identity used to log in, the username registered, the updated
+ *                      properties...; may be null.
+ * @param source        Where the request came from (the client address); null if unknown.
+ */
+public record AuditEvent(long time, AuditEventType type, String userId, String subject, String source) {
+
+    @Override
+    public String toString() {
+        return "%s %s user=%s subject=%s source=%s".formatted(Instant.ofEpochMilli(time), type, userId, subject, source);
+    }
+}
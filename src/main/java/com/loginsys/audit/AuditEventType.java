@@ -0,0 +1,34 @@
+package com.loginsys.audit;
+
+/**
+ * What an {@code AuditEvent} records. Every type has a fixed code in the binary log: codes must never be reused or
+ * renumbered, only added.
+ */
+public enum AuditEventType {
+
+    REGISTER(1),
+    LOGIN_SUCCESS(2),
+    LOGIN_FAILURE(3),
+    LOGIN_THROTTLED(4),
+    UPDATE(5),
+    DELETE(6);
+
+    private AuditEventType(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * @param code      A code read from the log.
+     * @return          The type with that code.
+     * @throws IllegalArgumentException     If no type has that code.
+     */
+    public static AuditEventType fromCode(byte code) {
+        for (AuditEventType type : values()) {
+            if (type.code == code) return type;
+        }
+
+        throw new IllegalArgumentException("Unknown audit event code: " + code);
+    }
+
+    public final byte code;
+}
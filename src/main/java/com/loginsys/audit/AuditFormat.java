@@ -0,0 +1,121 @@
+package com.loginsys.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * The binary layout of the audit log segments.
+ * <p>
+ * A segment starts with a header (a magic number and the format version), followed by records, each made of:
+ * <ul>
+ *     <li>the length of its body (int), written last, so that a record is only visible once complete;</li>
+ *     <li>the CRC32C of its body (int), which tells a torn record (e.g. after a power loss) from a complete one;</li>
+ *     <li>the body: the time (long), the type code (byte), then the user id, the subject and the source, each as a
+ *     UTF-8 length (short, -1 for null) followed by its bytes.</li>
+ * </ul>
+ * A zero length marks the end of the records: segments are preallocated, so their unused tail is zeros.
+ */
+final class AuditFormat {
+
+    static final int MAGIC = 0x4c534155;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 8;
+
+    /**
+     * Longer strings are cut, so that a record always fits in a segment.
+     */
+    static final int MAX_STRING_CHARS = 1024;
+
+    private AuditFormat() {
+    }
+
+    static void writeHeader(ByteBuffer segment) {
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+    }
+
+    static boolean hasHeader(ByteBuffer segment) {
+        return segment.limit() >= HEADER_BYTES && segment.getInt(0) == MAGIC && segment.getInt(4) == VERSION;
+    }
+
+    /**
+     * @return      The body of the record of the event.
+     */
+    static byte[] encode(AuditEvent event) {
+        byte[] userId = utf8(event.userId());
+        byte[] subject = utf8(event.subject());
+        byte[] source = utf8(event.source());
+
+        ByteBuffer body = ByteBuffer.allocate(Long.BYTES + 1 + 3 * Short.BYTES + length(userId) + length(subject) + length(source));
+        body.putLong(event.time());
+        body.put(event.type().code);
+        putString(body, userId);
+        putString(body, subject);
+        putString(body, source);
+        return body.array();
+    }
+
+    /**
+     * Writes a whole record at the given position: the body and its checksum first, then its length.
+     *
+     * @return      The number of bytes written.
+     */
+    static int write(ByteBuffer segment, int position, byte[] body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+
+        segment.put(position + RECORD_HEADER_BYTES, body);
+        segment.putInt(position + 4, (int) crc.getValue());
+        segment.putInt(position, body.length);
+        return RECORD_HEADER_BYTES + body.length;
+    }
+
+    /**
+     * @return      The length of the body of the record at the given position; 0 if there is no complete record there.
+     */
+    static int recordAt(ByteBuffer segment, int position) {
+        if (position + RECORD_HEADER_BYTES > segment.limit()) return 0;
+
+        int length = segment.getInt(position);
+
+        if (length <= 0 || position + RECORD_HEADER_BYTES + length > segment.limit()) return 0;
+
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position + RECORD_HEADER_BYTES, length));
+        return (int) crc.getValue() == segment.getInt(position + 4) ? length : 0;
+    }
+
+    static AuditEvent decode(ByteBuffer segment, int position, int length) {
+        ByteBuffer body = segment.slice(position + RECORD_HEADER_BYTES, length);
+        long time = body.getLong();
+        AuditEventType type = AuditEventType.fromCode(body.get());
+        return new AuditEvent(time, type, getString(body), getString(body), getString(body));
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) return null;
+        if (value.length() > MAX_STRING_CHARS) value = value.substring(0, MAX_STRING_CHARS);
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer body, byte[] bytes) {
+        body.putShort((short) (bytes == null ? -1 : bytes.length));
+        if (bytes != null) body.put(bytes);
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = body.getShort();
+
+        if (length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,347 @@
+package com.loginsys.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * An append-only log of the security events of the users (registrations, logins, updates, deletions), kept apart from
+ * the database so that auditing never adds to its write load.
+ * <p>
+ * Callers {@link #record} events into a lock-free ring buffer and return at once: they never wait for the disk, nor for
+ * each other. A single writer thread takes the events in order and appends them to a memory-mapped segment file
+ * ({@code audit-<n>.log}); when a segment is full, the next one is started. Mapped pages are forced to the disk every
+ * {@code flushInterval}, and when the log is closed. If the ring is full, new events are dropped and counted rather
+ * than slowing down the logins. While the ring is empty the writer sleeps, and only the first event recorded after it
+ * went to sleep wakes it up.
+ * <p>
+ * Segments are only created once the first event is recorded, and every run of the application starts a new one.
+ * {@code AuditLogReader} reads them back.
+ */
+public class AuditLog implements AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private final AuditLogConfig config;
+    private final AuditRing ring;
+    private final Thread writer;
+    private volatile boolean closed = false;
+    private volatile boolean sleeping = false;
+
+    private final LongAdder dropped = new LongAdder();
+    private volatile long written = 0;
+    private volatile long segments = 0;
+    private volatile long bytes = 0;
+
+    // only touched by the writer thread
+    private long nextSegment = -1;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private boolean dirty = false;
+    private long lastFlush = System.nanoTime();
+    private boolean failing = false;
+    private boolean flushFailing = false;
+
+    /**
+     * Creates the log without starting its writer thread, so that the thread never sees a partially constructed log.
+     *
+     * @param config    Where and how the events are written.
+     */
+    private AuditLog(AuditLogConfig config) {
+        this.config = config;
+
+        if (!config.enabled()) {
+            this.ring = null;
+            this.writer = null;
+            return;
+        }
+
+        this.ring = new AuditRing(config.ringCapacity());
+        this.writer = new Thread(this::run, "audit-log-writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Creates a log and, if enabled, starts its writer thread.
+     *
+     * @param config    Where and how the events are written.
+     * @return          The new log.
+     */
+    public static AuditLog open(AuditLogConfig config) {
+        AuditLog log = new AuditLog(config);
+        log.start();
+        return log;
+    }
+
+    /**
+     * @return      A log configured by the {@code loginsys.audit.*} system properties
+     *              (see {@link AuditLogConfig#fromSystemProperties}).
+     */
+    public static AuditLog fromSystemProperties() {
+        return open(AuditLogConfig.fromSystemProperties());
+    }
+
+    /**
+     * Queues an event, stamped with the current time. Never blocks.
+     *
+     * @param type          What happened.
+     * @param userId        The user concerned, if known.
+     * @param subject       What the event was about, if anything.
+     * @param source        Where the request came from, if known.
+     */
+    public void record(AuditEventType type, String userId, String subject, String source) {
+        if (ring == null) {
+            return;
+        }
+
+        if (closed || !ring.offer(new AuditEvent(System.currentTimeMillis(), type, userId, subject, source))) {
+            dropped.increment();
+            return;
+        }
+
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @return      The directory of the segments.
+     */
+    public Path directory() {
+        return config.directory();
+    }
+
+    /**
+     * @return      A snapshot of the log counters.
+     */
+    public AuditStats stats() {
+        return new AuditStats(ring != null ? ring.size() : 0, written, dropped.sum(), segments, bytes);
+    }
+
+    /**
+     * Stops accepting events, writes the queued ones and forces them to the disk.
+     */
+    @Override
+    public void close() {
+        if (writer == null || closed) {
+            return;
+        }
+
+        closed = true;
+        LockSupport.unpark(writer);
+
+        try {
+            writer.join();
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return      The segment files in the directory, oldest first.
+     */
+    static List<Path> segmentsOf(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> indexOf(file) >= 0)
+                    .sorted((a, b) -> Long.compare(indexOf(a), indexOf(b)))
+                    .toList();
+        }
+    }
+
+    /**
+     * @return      The number of the segment; -1 if the file is not a segment.
+     */
+    private static long indexOf(Path file) {
+        String name = file.getFileName().toString();
+
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void start() {
+        if (writer == null) {
+            return;
+        }
+
+        writer.start();
+
+        // the writer is a daemon: without the hook, the events still in the ring would be lost on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "audit-log-shutdown"));
+    }
+
+    private void run() {
+        while (true) {
+            AuditEvent event = ring.poll();
+
+            if (event != null) {
+                append(event);
+                continue;
+            }
+
+            if (closed) break;
+
+            long untilFlush = config.flushInterval().toNanos() - (System.nanoTime() - lastFlush);
+
+            if (dirty && untilFlush <= 0) {
+                flush();
+                continue;
+            }
+
+            sleep(dirty ? untilFlush : 0);
+        }
+
+        // events published between the last poll and close()
+        for (AuditEvent event = ring.poll(); event != null; event = ring.poll()) {
+            append(event);
+        }
+
+        finish();
+    }
+
+    /**
+     * Parks the writer until an event is recorded, the log is closed or, if positive, the timeout elapses.
+     */
+    private void sleep(long timeoutNanos) {
+        sleeping = true;
+
+        // the ring is checked after announcing the sleep: an event offered since then finds sleeping set, and unparks
+        if (ring.size() == 0 && !closed) {
+            if (timeoutNanos > 0) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+
+            else {
+                LockSupport.park(this);
+            }
+        }
+
+        sleeping = false;
+    }
+
+    private void append(AuditEvent event) {
+        try {
+            byte[] body = AuditFormat.encode(event);
+            int size = AuditFormat.RECORD_HEADER_BYTES + body.length;
+
+            if (segment == null || position + size > segment.capacity()) {
+                roll();
+            }
+
+            position += AuditFormat.write(segment, position, body);
+            dirty = true;
+            written++;
+            bytes += size;
+            failing = false;
+        }
+
+        catch (IOException | RuntimeException e) {
+            dropped.increment();
+
+            // once per outage, not once per event
+            if (!failing) {
+                failing = true;
+                System.err.println("Audit log: cannot write to " + config.directory() + ", dropping events: " + e);
+            }
+        }
+    }
+
+    /**
+     * Finishes the current segment, if any, and maps the next one.
+     */
+    private void roll() throws IOException {
+        finish();
+
+        if (nextSegment < 0) {
+            Files.createDirectories(config.directory());
+            List<Path> existing = segmentsOf(config.directory());
+            nextSegment = existing.isEmpty() ? 0 : indexOf(existing.get(existing.size() - 1)) + 1;
+        }
+
+        Path file = config.directory().resolve(SEGMENT_PREFIX + "%016d".formatted(nextSegment) + SEGMENT_SUFFIX);
+        nextSegment++;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, config.segmentBytes());
+        AuditFormat.writeHeader(segment);
+        position = AuditFormat.HEADER_BYTES;
+        dirty = true;
+        segments++;
+    }
+
+    private void flush() {
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+
+            dirty = false;
+            flushFailing = false;
+        }
+
+        catch (RuntimeException e) {
+            // force() reports I/O errors unchecked: the pages stay dirty and are forced again at the next interval
+            if (!flushFailing) {
+                flushFailing = true;
+                System.err.println("Audit log: cannot force a segment of " + config.directory() + " to the disk: " + e);
+            }
+        }
+
+        lastFlush = System.nanoTime();
+    }
+
+    /**
+     * Forces the current segment to the disk and trims its unused tail.
+     */
+    private void finish() {
+        if (segment == null) {
+            return;
+        }
+
+        flush();
+
+        try {
+            // the mapping stays valid for the bytes before the new end, which are all the writer touched
+            channel.truncate(position);
+        }
+
+        catch (IOException e) {
+            // the zeroed tail is harmless: readers stop at the first empty record
+        }
+
+        try {
+            channel.close();
+        }
+
+        catch (IOException e) {
+            System.err.println("Audit log: cannot close a segment: " + e);
+        }
+
+        segment = null;
+        channel = null;
+    }
+}
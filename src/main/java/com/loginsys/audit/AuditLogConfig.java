@@ -0,0 +1,45 @@
+package com.loginsys.audit;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The tunables of an {@code AuditLog}.
+ *
+ * @param enabled           False to record nothing.
+ * @param directory         Where the segments of the log are written.
+ * @param segmentBytes      The size of every segment file; a new segment is started when the current one is full.
+ * @param ringCapacity      The number of events waiting to be written; further events are dropped, and counted.
+ *                          Rounded up to a power of two.
+ * @param flushInterval     How often written events are forced to the disk.
+ */
+public record AuditLogConfig(boolean enabled, Path directory, int segmentBytes, int ringCapacity, Duration flushInterval) {
+
+    public AuditLogConfig {
+        if (segmentBytes < 64 * 1024) throw new IllegalArgumentException("Segments must be at least 64 KiB: " + segmentBytes);
+        if (ringCapacity < 1 || ringCapacity > 1 << 30) throw new IllegalArgumentException("Ring capacity must be in [1, 2^30]: " + ringCapacity);
+        if (flushInterval.isNegative()) throw new IllegalArgumentException("Flush interval must not be negative: " + flushInterval);
+    }
+
+    /**
+     * Reads the configuration from the {@code loginsys.audit.*} system properties, falling back to these defaults:
+     * <ul>
+     *     <li>{@code loginsys.audit.enabled} (default: true)</li>
+     *     <li>{@code loginsys.audit.directory} (default: {@code audit})</li>
+     *     <li>{@code loginsys.audit.segmentBytes} (default: 64 MiB)</li>
+     *     <li>{@code loginsys.audit.ringCapacity} (default: 65536 events)</li>
+     *     <li>{@code loginsys.audit.flushMs} (default: 1000)</li>
+     * </ul>
+     *
+     * @return      The resulting configuration.
+     */
+    public static AuditLogConfig fromSystemProperties() {
+        return new AuditLogConfig(
+                Boolean.parseBoolean(System.getProperty("loginsys.audit.enabled", "true")),
+                Path.of(System.getProperty("loginsys.audit.directory", "audit")),
+                Integer.getInteger("loginsys.audit.segmentBytes", 64 * 1024 * 1024),
+                Integer.getInteger("loginsys.audit.ringCapacity", 65536),
+                Duration.ofMillis(Long.getLong("loginsys.audit.flushMs", 1000))
+        );
+    }
+}
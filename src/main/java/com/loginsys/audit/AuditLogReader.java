@@ -0,0 +1,125 @@
+package com.loginsys.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the events of an {@code AuditLog} back, segment after segment, mapping each one read-only. Segments are only
+ * read as the stream is consumed, so a log of any size can be scanned in constant memory.
+ * <p>
+ * The segment being written by a running application can be read too: its events are returned up to the last one
+ * completely written.
+ */
+public class AuditLogReader {
+
+    private final Path directory;
+
+    /**
+     * @param directory     The directory of the segments.
+     */
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Prints the events of a log, e.g. {@code AuditLogReader audit 2026-01-01T00:00:00Z - <user id>}.
+     *
+     * @param args      The directory, then optionally the start and the end of the time range (ISO-8601 instants, or
+     *                  {@code -} for no bound) and a user id.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("Usage: AuditLogReader <directory> [from|-] [to|-] [userId]");
+            System.exit(2);
+        }
+
+        long from = args.length > 1 && !args[1].equals("-") ? Instant.parse(args[1]).toEpochMilli() : Long.MIN_VALUE;
+        long to = args.length > 2 && !args[2].equals("-") ? Instant.parse(args[2]).toEpochMilli() : Long.MAX_VALUE;
+        String userId = args.length > 3 ? args[3] : null;
+
+        try (Stream<AuditEvent> events = new AuditLogReader(Path.of(args[0])).events(from, to, userId)) {
+            events.forEach(System.out::println);
+        }
+    }
+
+    /**
+     * @return      Every event of the log, in the order they were written.
+     * @throws UncheckedIOException     If the directory cannot be listed or a segment cannot be read.
+     */
+    public Stream<AuditEvent> events() {
+        return events(Long.MIN_VALUE, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param fromMillis    The earliest time of the returned events, included, in milliseconds since the epoch.
+     * @param toMillis      The latest time of the returned events, excluded.
+     * @param userId        The user whose events are returned; null for every user.
+     * @return              The matching events, in the order they were written.
+     * @throws UncheckedIOException     If the directory cannot be listed or a segment cannot be read.
+     */
+    public Stream<AuditEvent> events(long fromMillis, long toMillis, String userId) {
+        try {
+            return AuditLog.segmentsOf(directory).stream()
+                    .flatMap(AuditLogReader::read)
+                    .filter(event -> event.time() >= fromMillis && event.time() < toMillis)
+                    .filter(event -> userId == null || userId.equals(event.userId()));
+        }
+
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Stream<AuditEvent> read(Path file) {
+        MappedByteBuffer segment;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping outlives the channel
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (!AuditFormat.hasHeader(segment)) {
+            return Stream.empty();
+        }
+
+        Iterator<AuditEvent> records = new Iterator<>() {
+
+            private int position = AuditFormat.HEADER_BYTES;
+            private int length = AuditFormat.recordAt(segment, position);
+
+            @Override
+            public boolean hasNext() {
+                return length > 0;
+            }
+
+            @Override
+            public AuditEvent next() {
+                if (length == 0) {
+                    throw new NoSuchElementException();
+                }
+
+                AuditEvent event = AuditFormat.decode(segment, position, length);
+                position += AuditFormat.RECORD_HEADER_BYTES + length;
+                length = AuditFormat.recordAt(segment, position);
+                return event;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
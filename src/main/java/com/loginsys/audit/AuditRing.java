@@ -0,0 +1,70 @@
+package com.loginsys.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue of events with many producers and a single consumer.
+ * <p>
+ * A producer claims the next sequence number with a compare-and-set, then publishes its event in the slot of that
+ * number. The consumer takes the events in sequence order, clearing their slot before moving on, so that a slot is only
+ * claimed again once it is free. A full ring rejects the event instead of waiting.
+ */
+class AuditRing {
+
+    private final AtomicReferenceArray<AuditEvent> slots;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    /**
+     * @param capacity      The number of slots, rounded up to a power of two.
+     */
+    AuditRing(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+        this.mask = slots.length() - 1;
+    }
+
+    /**
+     * @return      False if the ring is full: the event was not queued.
+     */
+    boolean offer(AuditEvent event) {
+        long sequence;
+
+        do {
+            sequence = tail.get();
+
+            if (sequence - head >= slots.length()) {
+                return false;
+            }
+        }
+        while (!tail.compareAndSet(sequence, sequence + 1));
+
+        slots.setRelease((int) (sequence & mask), event);
+        return true;
+    }
+
+    /**
+     * Must only be called by the consumer.
+     *
+     * @return      The next event; null if there is none, or if its producer has not published it yet.
+     */
+    AuditEvent poll() {
+        int slot = (int) (head & mask);
+        AuditEvent event = slots.getAcquire(slot);
+
+        if (event == null) {
+            return null;
+        }
+
+        // cleared before the head moves, so that the producer which claims the slot next finds it empty
+        slots.setPlain(slot, null);
+        head = head + 1;
+        return event;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
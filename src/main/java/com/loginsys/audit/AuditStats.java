@@ -0,0 +1,18 @@
+package com.loginsys.audit;
+
+/**
+ * A point-in-time snapshot of the counters of an {@code AuditLog}.
+ *
+ * @param queued        Events waiting in the ring buffer.
+ * @param written       Events written to a segment.
+ * @param dropped       Events lost because the ring buffer was full or a segment could not be written.
+ * @param segments      Segments started by this log.
+ * @param bytes         Bytes of events written, headers included.
+ */
+public record AuditStats(int queued, long written, long dropped, long segments, long bytes) {
+
+    @Override
+    public String toString() {
+        return "queued=%d written=%d dropped=%d segments=%d bytes=%dKiB".formatted(queued, written, dropped, segments, bytes / 1024);
+    }
+}
@@ -1,48 +1,251 @@
 package com.loginsys.database;
 
+import com.loginsys.audit.AuditEventType;
+import com.loginsys.audit.AuditLog;
+import com.loginsys.audit.AuditLogConfig;
+import com.loginsys.database.cache.CacheStats;
+import com.loginsys.database.cache.UserCache;
+import com.loginsys.database.filter.FilterStats;
+import com.loginsys.database.filter.IdentityFilter;
+import com.loginsys.database.index.IndexStats;
+import com.loginsys.database.pool.PoolMetrics;
 import com.loginsys.database.property.Property;
+import com.loginsys.database.store.GroupCommitStats;
+import com.loginsys.database.store.InMemoryUserStore;
+import com.loginsys.database.store.SqliteUserStore;
+import com.loginsys.database.store.UserStore;
+import com.loginsys.exceptions.AlreadyTakenUserEmail;
+import com.loginsys.exceptions.AlreadyTakenUserUsername;
 import com.loginsys.exceptions.EditingNonEditablePropertyException;
+import com.loginsys.exceptions.InvalidUserPasswordException;
 import com.loginsys.exceptions.SearchWithNonSearchablePropertyException;
+import com.loginsys.management.session.StoredSession;
 import com.loginsys.management.user.User;
-
-import java.sql.*;
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.metrics.Operation;
+import com.loginsys.metrics.OperationMetrics;
+import com.loginsys.security.PasswordHashing;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The static facade every user and session operation goes through. It checks the arguments, keeps the cache and the
+ * identity filter up to date, and delegates the storage itself to a {@code UserStore}.
+ * <p>
+ * Passwords are only ever stored hashed: every method writing one rejects a value which is not a hash
+ * (see {@code PasswordHashing.isWellFormedHash}) with an {@code InvalidUserPasswordException}, before touching the store.
+ */
 public class DatabaseManager {
 
     /**
-     * The connection string. This variable contains the address which points to a SQLite database file.
-     * The address is "jdbc:sqlite:users_data.db" where "users_data.db" is the db file.
+     * Where users and sessions are stored, selected by the {@code loginsys.store} system property:
+     * {@code sqlite} (the default, see {@link SqliteUserStore#fromSystemProperties()} for its settings) or {@code memory},
+     * which keeps everything in memory, e.g. to measure the cost of the application logic without any disk I/O.
+     */
+    private static final UserStore store = switch (System.getProperty("loginsys.store", "sqlite")) {
+        case "sqlite" -> SqliteUserStore.fromSystemProperties();
+        case "memory" -> new InMemoryUserStore();
+        default -> throw new IllegalArgumentException("Unknown store: " + System.getProperty("loginsys.store"));
+    };
+
+    /**
+     * Returns the current counters of the read-only connection pool (borrow wait time, active connections, timeouts...).
+     *
+     * @return      A snapshot of the pool metrics; null if the selected store does not use a connection pool.
+     */
+    public static PoolMetrics poolMetrics() {
+        return store instanceof SqliteUserStore sqlite ? sqlite.poolMetrics() : null;
+    }
+
+    /**
+     * Returns the current counters of the connection every write runs on.
+     *
+     * @return      A snapshot of the writer pool metrics; null if the selected store does not use a connection pool.
+     */
+    public static PoolMetrics writerPoolMetrics() {
+        return store instanceof SqliteUserStore sqlite ? sqlite.writerPoolMetrics() : null;
+    }
+
+    /**
+     * Returns the current counters of the group commit (transactions, writes per transaction, conflicts...).
+     *
+     * @return      A snapshot of the group commit counters; null if the selected store does not batch its writes.
+     */
+    public static GroupCommitStats groupCommitStats() {
+        return store instanceof SqliteUserStore sqlite ? sqlite.groupCommitStats() : null;
+    }
+
+    /**
+     * Returns the size and memory of the compact index of the in-memory store.
+     *
+     * @return      A snapshot of the index size; null if the selected store does not keep one.
+     */
+    public static IndexStats indexStats() {
+        return store instanceof InMemoryUserStore memory ? memory.indexStats() : null;
+    }
+
+    /**
+     * Recently read rows, so that users who just logged in are not fetched again from the database.
+     * Its size and time-to-live can be tuned through the {@code loginsys.cache.*} system properties.
+     * Every write invalidates the rows it touches before returning.
+     */
+    private static final UserCache cache = UserCache.fromSystemProperties();
+
+    /**
+     * Returns the current counters of the user cache (hit ratio, evictions, load time...).
+     *
+     * @return      A snapshot of the cache statistics.
+     */
+    public static CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Bloom filters over every email and username, which answer lookups of nonexistent users without a query.
+     * They are built in background from the table at startup and can be tuned or disabled through the
+     * {@code loginsys.filter.*} system properties (see {@link IdentityFilter#fromSystemProperties}).
+     */
+    private static final IdentityFilter filter = IdentityFilter.fromSystemProperties(new IdentityFilter.Source() {
+        @Override
+        public long count() {
+            return store.count();
+        }
+
+        @Override
+        public void forEachUser(Consumer<UserSnapshot> action) {
+            store.forEach(action);
+        }
+    });
+
+    static {
+        filter.rebuildInBackground();
+    }
+
+    /**
+     * Returns the current counters of the identity filter (false positive rate, memory footprint...).
+     *
+     * @return      A snapshot of the filter statistics.
      */
-    private static final String connectionString = "jdbc:sqlite:users_data.db";
+    public static FilterStats filterStats() {
+        return filter.stats();
+    }
+
+    /**
+     * Latency histograms and success/failure counters of the user operations, shared with {@code UsersManager}.
+     * They are exposed through JMX and can be tuned or disabled through the {@code loginsys.metrics.*} system properties
+     * (see {@link OperationMetrics#fromSystemProperties}).
+     */
+    private static final OperationMetrics metrics = OperationMetrics.fromSystemProperties();
+
+    /**
+     * @return      The metrics of the user operations.
+     */
+    public static OperationMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * The trail of registrations, logins, updates and deletions, shared with {@code UsersManager}. It is written to
+     * memory-mapped files, apart from the database, and can be tuned or disabled through the {@code loginsys.audit.*}
+     * system properties (see {@link AuditLogConfig#fromSystemProperties}).
+     */
+    private static final AuditLog audit = AuditLog.fromSystemProperties();
+
+    /**
+     * @return      The audit log of the user operations.
+     */
+    public static AuditLog audit() {
+        return audit;
+    }
 
     /**
      * Registers a new user to the database.
+     * Uniqueness is enforced by the database itself, so this single insert is also the availability check of the email
+     * and the username, and two concurrent registrations can never both get the same one.
      *
      * @param id            User's id. It can be omitted.
      * @param email         The email.
      * @param username      The username.
-     * @param password      The user password.
+     * @param password      The user password, hashed.
+     * @throws AlreadyTakenUserEmail        If another user already has the given email.
+     * @throws AlreadyTakenUserUsername     If another user already has the given username.
+     * @throws InvalidUserPasswordException If the password is not hashed.
      */
-    public static void registerNewUserToDatabase(String id, String email, String username, String password) {
+    public static void registerNewUserToDatabase(String id, String email, String username, String password)
+            throws AlreadyTakenUserEmail, AlreadyTakenUserUsername {
 
         Objects.requireNonNull(id);
         Objects.requireNonNull(email);
         Objects.requireNonNull(username);
         Objects.requireNonNull(password);
+        requireHashed(password);
+
+        filter.addPending(Property.EMAIL, email);
+        filter.addPending(Property.USERNAME, username);
+
+        store.insert(new UserSnapshot(id, email, username, password));
+
+        filter.add(Property.EMAIL, email);
+        filter.add(Property.USERNAME, username);
+        audit.record(AuditEventType.REGISTER, id, username, null);
+    }
+
+    /**
+     * Inserts many users in a single transaction, using one JDBC batch.
+     * Rows whose id, email or username is already taken (by an existing user or by a previous row of the same batch)
+     * are skipped instead of failing the whole batch. Every inserted row is audited as a registration.
+     *
+     * @param rows      The users to insert; passwords must already be hashed.
+     * @return          For each row, in order, true if it was inserted and false if it was skipped as a duplicate.
+     * @throws InvalidUserPasswordException If the password of any row is not hashed; no row is inserted then.
+     */
+    public static boolean[] insertUsersIfAbsent(List<UserSnapshot> rows) {
 
-        try (Connection connection = DriverManager.getConnection(connectionString)) {
-            PreparedStatement stm = connection.prepareStatement("insert into Users (id, email, username, password) values (?,?,?,?)");
-            stm.setString(1, id);
-            stm.setString(2, email);
-            stm.setString(3, username);
-            stm.setString(4, password);
-            stm.executeUpdate();
+        Objects.requireNonNull(rows);
+        rows.forEach(row -> requireHashed(row.password()));
+
+        for (UserSnapshot row : rows) {
+            filter.addPending(Property.EMAIL, row.email());
+            filter.addPending(Property.USERNAME, row.username());
         }
 
-        catch (SQLException e) {
-            throw new RuntimeException(e);
+        boolean[] inserted = store.insertIfAbsent(rows);
+
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                UserSnapshot row = rows.get(i);
+                filter.add(Property.EMAIL, row.email());
+                filter.add(Property.USERNAME, row.username());
+                audit.record(AuditEventType.REGISTER, row.id(), row.username(), null);
+            }
         }
+
+        return inserted;
+    }
+
+    /**
+     * @return      The number of registered users.
+     */
+    public static long countUsers() {
+        return store.count();
+    }
+
+    /**
+     * Streams every user of the database, in insertion order, without loading them all in memory.
+     * The rows bypass the cache. With the SQLite store, a pooled connection is held until the iteration ends.
+     *
+     * @param action    Called once for each user.
+     */
+    public static void forEachUser(Consumer<UserSnapshot> action) {
+
+        Objects.requireNonNull(action);
+
+        store.forEach(action);
     }
 
     /**
@@ -62,24 +265,29 @@ public class DatabaseManager {
             throw new SearchWithNonSearchablePropertyException("Used a non searchable property as filter: " + filterType.value);
         }
 
-        try (Connection connection = DriverManager.getConnection(connectionString)) {
-            PreparedStatement stm = connection.prepareStatement("select id from Users where %s = ?".formatted(filterType.value));
-            stm.setString(1, filter);
+        UserSnapshot snapshot = findUserBy(filterType, filter);
+        return snapshot != null ? snapshot.user() : null;
+    }
 
-            ResultSet rs = stm.executeQuery();
+    /**
+     * Searches into the DB for a matching {@code filter} value and returns the whole matched row, fetched with a single query.
+     * Authentication relies on this to get the user's id and credentials in one round trip.
+     *
+     * @param filterType    The column in which search the {@code filter} value. It can be ID, EMAIL or USERNAME.
+     * @param filter        The value to search in the column specified by {@code filterType}.
+     * @return              A snapshot of the matched row (record); null if no matching is found.
+     * @throws SearchWithNonSearchablePropertyException     If the property's type used as filter is a non-searchable value.
+     */
+    public static UserSnapshot loadUserBy(Property filterType, String filter) throws SearchWithNonSearchablePropertyException {
 
-            if (rs.next()) {
-                return new User(rs.getString("id"));
-            }
+        Objects.requireNonNull(filterType);
+        Objects.requireNonNull(filter);
 
-            else {
-                return null;
-            }
+        if (!filterType.searchable) {
+            throw new SearchWithNonSearchablePropertyException("Used a non searchable property as filter: " + filterType.value);
         }
 
-        catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        return findUserBy(filterType, filter);
     }
 
     /**
@@ -118,9 +326,78 @@ public class DatabaseManager {
         return retrieveUserBy(Property.USERNAME, username);
     }
 
+    /**
+     * Loads the whole row of a user with a single query.
+     *
+     * @param id    The id of the user.
+     * @return      A snapshot of every property of the user; null if no user has the given id.
+     */
+    public static UserSnapshot loadUser(String id) {
+
+        Objects.requireNonNull(id);
+
+        return findUserBy(Property.ID, id);
+    }
+
+    /**
+     * Looks up a whole row by a searchable property, going to the database only on a cache miss.
+     * Emails and usernames which the identity filter knows to be unused are answered without a query.
+     *
+     * @param filterType    The searchable property to filter on.
+     * @param filter        The value to search.
+     * @return              The matched row; null if no row matches.
+     */
+    private static UserSnapshot findUserBy(Property filterType, String filter) {
+
+        long start = metrics.start();
+        boolean success = false;
+
+        try {
+            UserSnapshot snapshot = loadThroughCache(filterType, filter);
+            success = true;
+            return snapshot;
+        }
+
+        finally {
+            metrics.record(Operation.RETRIEVE_USER, start, success, filterType);
+        }
+    }
+
+    /**
+     * The body of {@link #findUserBy}, without the timing.
+     */
+    private static UserSnapshot loadThroughCache(Property filterType, String filter) {
+
+        if (!DatabaseManager.filter.mightContain(filterType, filter)) {
+            return null;
+        }
+
+        UserSnapshot cached = cache.getBy(filterType, filter);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadToken = cache.beginLoad();
+        long start = System.nanoTime();
+
+        UserSnapshot snapshot = store.findBy(filterType, filter);
+
+        if (snapshot != null) {
+            cache.put(snapshot, loadToken, System.nanoTime() - start);
+        }
+
+        else if (filterType != Property.ID) {
+            DatabaseManager.filter.recordFalsePositive();
+        }
+
+        return snapshot;
+    }
+
     /**
      * Returns a String which represents the content of the row's selected property.
      * This method if primary used by the {@code User} object to retrieve at runtime its fields' values.
+     * To read more than one property, prefer {@link #loadUser(String)}, which fetches them all in one query.
      *
      * @param id            The id of the user.
      * @param property      The selected user's property.
@@ -132,23 +409,17 @@ public class DatabaseManager {
         Objects.requireNonNull(id);
         Objects.requireNonNull(property);
 
-        try (Connection connection = DriverManager.getConnection(connectionString)) {
-            PreparedStatement stm = connection.prepareStatement("select * from Users where id = ?");
-            stm.setString(1, id);
+        long start = metrics.start();
+        boolean success = false;
 
-            ResultSet rs = stm.executeQuery();
-
-            if (rs.next()) {
-                return rs.getString(property.value);
-            }
-
-            else {
-                return null;
-            }
+        try {
+            UserSnapshot snapshot = loadUser(id);
+            success = true;
+            return snapshot != null ? snapshot.get(property) : null;
         }
 
-        catch (SQLException e) {
-            throw new RuntimeException(e);
+        finally {
+            metrics.record(Operation.GET_PROPERTY, start, success, property);
         }
     }
 
@@ -157,8 +428,8 @@ public class DatabaseManager {
      *
      * @param id            The user's id corresponding to the row (record) to modify.
      * @param property      The property to update.
-     * @param value         The new property value.
-     *
+     * @param value         The new property value; for the password, its hash.
+     * @throws InvalidUserPasswordException If the property is the password and the value is not hashed.
      */
     public static void updatePropertyByUserId(String id, Property property, String value) {
 
@@ -170,15 +441,88 @@ public class DatabaseManager {
             throw new EditingNonEditablePropertyException("Trying to edit a non-editable property: " + property.value);
         }
 
-        try (Connection connection = DriverManager.getConnection(connectionString)) {
-            PreparedStatement stm = connection.prepareStatement("update Users set %s = ? where id = ?".formatted(property.value));
-            stm.setString(1, value);
-            stm.setString(2, id);
-            stm.executeUpdate();
+        if (property == Property.PASSWORD) {
+            requireHashed(value);
+        }
+
+        filter.addPending(property, value);
+
+        long start = metrics.start();
+        boolean success = false;
+
+        try {
+            if (store.update(id, Map.of(property, value))) {
+                audit.record(AuditEventType.UPDATE, id, property.value, null);
+
+                if (property != Property.PASSWORD) {
+                    filter.add(property, value);
+                    filter.markStale(1);
+                }
+            }
+
+            success = true;
+        }
+
+        finally {
+            cache.invalidate(id);
+            metrics.record(Operation.UPDATE_PROPERTY, start, success, property);
+        }
+    }
+
+    /**
+     * Updates several properties of a user at once, in a single transaction: either every value is stored, or none is.
+     * A value already taken by another user makes the whole update fail with the matching exception.
+     *
+     * @param id            The user's id corresponding to the row (record) to modify.
+     * @param values        The new value of each property to update; for the password, its hash.
+     * @throws AlreadyTakenUserEmail        If another user already has the new email.
+     * @throws AlreadyTakenUserUsername     If another user already has the new username.
+     * @throws InvalidUserPasswordException If a new password is not hashed.
+     */
+    public static void updatePropertiesByUserId(String id, Map<Property, String> values)
+            throws AlreadyTakenUserEmail, AlreadyTakenUserUsername {
+
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(values);
+
+        // copied in declaration order, so that concurrent updates always touch the columns in the same order
+        Map<Property, String> ordered = new EnumMap<>(Property.class);
+
+        values.forEach((property, value) -> {
+            if (!property.editable) {
+                throw new EditingNonEditablePropertyException("Trying to edit a non-editable property: " + property.value);
+            }
+
+            ordered.put(property, Objects.requireNonNull(value));
+        });
+
+        if (ordered.containsKey(Property.PASSWORD)) {
+            requireHashed(ordered.get(Property.PASSWORD));
+        }
+
+        if (ordered.isEmpty()) {
+            return;
+        }
+
+        ordered.forEach(filter::addPending);
+
+        long start = metrics.start();
+        boolean success = false;
+
+        try {
+            if (store.update(id, ordered)) {
+                String properties = ordered.keySet().stream().map(property -> property.value).collect(Collectors.joining(","));
+                audit.record(AuditEventType.UPDATE, id, properties, null);
+                ordered.forEach(filter::add);
+                filter.markStale((int) ordered.keySet().stream().filter(property -> property != Property.PASSWORD).count());
+            }
+
+            success = true;
         }
 
-        catch (SQLException e) {
-            throw new RuntimeException(e);
+        finally {
+            cache.invalidate(id);
+            metrics.record(Operation.UPDATE_PROPERTIES, start, success, ordered.keySet());
         }
     }
 
@@ -206,12 +550,39 @@ public class DatabaseManager {
      * Updates the Password with a new value given as argument.
      *
      * @param id            User's id.
-     * @param password      New password.
+     * @param password      New password, hashed.
+     * @throws InvalidUserPasswordException If the password is not hashed.
      */
     public static void updatePasswordByUserId(String id, String password) {
         updatePropertyByUserId(id, Property.PASSWORD, password);
     }
 
+    /**
+     * Replaces the password of a user only if it still has the expected value, so that a concurrent password change
+     * is never overwritten. It is used to upgrade the stored hash of a password after a successful login.
+     *
+     * @param id            User's id.
+     * @param expected      The password value the row must still have.
+     * @param replacement   The new password value, hashed.
+     * @return              True if the password was replaced.
+     * @throws InvalidUserPasswordException If the replacement is not hashed.
+     */
+    public static boolean replacePasswordByUserId(String id, String expected, String replacement) {
+
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(expected);
+        Objects.requireNonNull(replacement);
+        requireHashed(replacement);
+
+        try {
+            return store.replacePassword(id, expected, replacement);
+        }
+
+        finally {
+            cache.invalidate(id);
+        }
+    }
+
     /**
      * Removes the specified user from the db.
      *
@@ -221,15 +592,101 @@ public class DatabaseManager {
 
         Objects.requireNonNull(id);
 
-        try (Connection connection = DriverManager.getConnection(connectionString)) {
-            PreparedStatement stm = connection.prepareStatement("delete from Users where id = ?");
-            stm.setString(1, id);
-            stm.executeUpdate();
+        long start = metrics.start();
+        boolean success = false;
+
+        try {
+            if (store.delete(id)) {
+                filter.markStale(2);
+                audit.record(AuditEventType.DELETE, id, null, null);
+            }
+
+            success = true;
         }
 
-        catch (SQLException e) {
-            throw new RuntimeException(e);
+        finally {
+            cache.invalidate(id);
+            metrics.record(Operation.DELETE_USER, start, success, null);
         }
     }
 
+    /**
+     * Persists a new session.
+     *
+     * @param session   The session, with its token already hashed.
+     */
+    public static void insertSession(StoredSession session) {
+
+        Objects.requireNonNull(session);
+
+        store.insertSession(session);
+    }
+
+    /**
+     * Streams every persisted session which expires after {@code now}.
+     *
+     * @param now       The current time, in epoch milliseconds.
+     * @param action    Called once for each live session.
+     */
+    public static void forEachLiveSession(long now, Consumer<StoredSession> action) {
+
+        Objects.requireNonNull(action);
+
+        store.forEachLiveSession(now, action);
+    }
+
+    /**
+     * Stores the new expiry of many sessions in a single transaction. Unknown sessions are ignored.
+     *
+     * @param sessions      The sessions, with their new {@code expiresAt}.
+     */
+    public static void updateSessionExpiries(List<StoredSession> sessions) {
+
+        Objects.requireNonNull(sessions);
+
+        store.updateSessionExpiries(sessions);
+    }
+
+    /**
+     * Removes many persisted sessions in a single transaction. Unknown sessions are ignored.
+     *
+     * @param tokenHashes   The hashes of the session tokens.
+     */
+    public static void deleteSessions(List<String> tokenHashes) {
+
+        Objects.requireNonNull(tokenHashes);
+
+        store.deleteSessions(tokenHashes);
+    }
+
+    /**
+     * Removes every persisted session of a user.
+     *
+     * @param userId    The user's id.
+     */
+    public static void deleteSessionsOfUser(String userId) {
+
+        Objects.requireNonNull(userId);
+
+        store.deleteSessionsOfUser(userId);
+    }
+
+    /**
+     * Removes every persisted session which expired.
+     *
+     * @param now       The current time, in epoch milliseconds.
+     * @return          The number of removed sessions.
+     */
+    public static int deleteExpiredSessions(long now) {
+        return store.deleteExpiredSessions(now);
+    }
+
+    /**
+     * Plaintext passwords would still be accepted at login, as legacy values: they must never be written in the first place.
+     */
+    private static void requireHashed(String password) {
+        if (!PasswordHashing.isWellFormedHash(password)) {
+            throw new InvalidUserPasswordException("Passwords must be hashed before being stored.");
+        }
+    }
 }
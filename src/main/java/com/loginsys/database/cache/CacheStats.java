@@ -0,0 +1,36 @@
+package com.loginsys.database.cache;
+
+/**
+ * A point-in-time snapshot of a {@code UserCache} counters.
+ *
+ * @param size              Entries currently cached.
+ * @param hits              Lookups answered by the cache.
+ * @param misses            Lookups which had to go to the database.
+ * @param evictions         Entries dropped because the cache was full or their time-to-live expired.
+ * @param loads             Rows loaded from the database after a miss.
+ * @param totalLoadNanos    Time spent loading those rows.
+ */
+public record CacheStats(int size, long hits, long misses, long evictions, long loads, long totalLoadNanos) {
+
+    /**
+     * @return      The fraction of lookups answered by the cache, between 0 and 1.
+     */
+    public double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @return      The average time spent loading a row after a miss, in nanoseconds.
+     */
+    public long averageLoadNanos() {
+        return loads == 0 ? 0 : totalLoadNanos / loads;
+    }
+
+    @Override
+    public String toString() {
+        return "size=%d hitRatio=%.3f hits=%d misses=%d evictions=%d loads=%d avgLoad=%dus".formatted(
+                size, hitRatio(), hits, misses, evictions, loads, averageLoadNanos() / 1_000
+        );
+    }
+}
@@ -0,0 +1,235 @@
+package com.loginsys.database.cache;
+
+import com.loginsys.database.property.Property;
+import com.loginsys.management.user.UserSnapshot;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, least-recently-used cache of user rows, with a time-to-live on each entry.
+ * Rows are indexed by id and, through two secondary maps, by email and username.
+ * <p>
+ * The rows are split by id in independently locked stripes, each keeping its share of {@code capacity} in access
+ * order, so that concurrent lookups of different users rarely wait for each other. The secondary maps are concurrent
+ * and never locked.
+ * <p>
+ * Writers must call {@link #invalidate(String)} right after changing a row. Loads racing with an invalidation are
+ * detected through {@link #beginLoad()}: a row read before the invalidation is never put back in the cache. Only the
+ * invalidations of the row's own stripe are checked, so writes to other users do not discard the load.
+ */
+public class UserCache {
+
+    private record Entry(UserSnapshot snapshot, long expiresAtNanos) {
+    }
+
+    /**
+     * The rows of a stripe, in access order, and when the last one of them was invalidated. Guarded by the stripe itself.
+     */
+    private static final class Stripe {
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long invalidatedAt = 0;
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final long ttlNanos;
+
+    private final Map<String, String> idByEmail = new ConcurrentHashMap<>();
+    private final Map<String, String> idByUsername = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    /**
+     * @param capacity  The maximum number of cached rows.
+     * @param ttl       How long a row stays valid after being loaded.
+     */
+    public UserCache(int capacity, Duration ttl) {
+        if (capacity < 1) throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+
+        // a power of two no larger than the capacity, so that every stripe holds at least one row
+        int count = Integer.highestOneBit(Math.min(capacity, Runtime.getRuntime().availableProcessors() * 8));
+
+        this.stripes = new Stripe[count];
+        this.stripeCapacity = capacity / count;
+        this.ttlNanos = ttl.toNanos();
+
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Creates a cache configured by the {@code loginsys.cache.size} (default: 10000 rows)
+     * and {@code loginsys.cache.ttlMs} (default: 5 minutes) system properties.
+     *
+     * @return      The new cache.
+     */
+    public static UserCache fromSystemProperties() {
+        return new UserCache(
+                Integer.getInteger("loginsys.cache.size", 10_000),
+                Duration.ofMillis(Long.getLong("loginsys.cache.ttlMs", 300_000))
+        );
+    }
+
+    /**
+     * @param id    The user's id.
+     * @return      The cached row; null if it is not cached or expired.
+     */
+    public UserSnapshot get(String id) {
+        Stripe stripe = stripeOf(id);
+        Entry entry;
+
+        synchronized (stripe) {
+            entry = stripe.entries.get(id);
+
+            if (entry != null && entry.expiresAtNanos() - System.nanoTime() < 0) {
+                remove(stripe, id);
+                evictions.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.snapshot();
+    }
+
+    /**
+     * @param property      The searchable property to look up (ID, EMAIL or USERNAME).
+     * @param value         The value of the property.
+     * @return              The cached row having that value; null if it is not cached or expired.
+     */
+    public UserSnapshot getBy(Property property, String value) {
+        String id = switch (property) {
+            case ID -> value;
+            case EMAIL -> idByEmail.get(value);
+            case USERNAME -> idByUsername.get(value);
+            case PASSWORD -> null;
+        };
+
+        if (id == null) {
+            misses.increment();
+            return null;
+        }
+
+        return get(id);
+    }
+
+    /**
+     * Marks the beginning of a database load. The returned token must be given back to {@link #put(UserSnapshot, long)}.
+     *
+     * @return      A token identifying the moment the load began, compared with the invalidations of the loaded row.
+     */
+    public long beginLoad() {
+        return clock.get();
+    }
+
+    /**
+     * Caches a row loaded from the database, unless it was invalidated while it was being loaded.
+     *
+     * @param snapshot      The loaded row.
+     * @param loadToken     The token returned by {@link #beginLoad()} before the row was read.
+     * @param loadNanos     The time spent loading the row.
+     */
+    public void put(UserSnapshot snapshot, long loadToken, long loadNanos) {
+        loads.increment();
+        totalLoadNanos.add(loadNanos);
+
+        Stripe stripe = stripeOf(snapshot.id());
+
+        synchronized (stripe) {
+            // checked under the lock: an invalidation stamped after this check removes the row once the lock is released
+            if (stripe.invalidatedAt > loadToken) {
+                return;
+            }
+
+            remove(stripe, snapshot.id());
+            stripe.entries.put(snapshot.id(), new Entry(snapshot, System.nanoTime() + ttlNanos));
+            idByEmail.put(snapshot.email(), snapshot.id());
+            idByUsername.put(snapshot.username(), snapshot.id());
+
+            while (stripe.entries.size() > stripeCapacity) {
+                remove(stripe, stripe.entries.keySet().iterator().next());
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops a row from the cache. It must be called whenever the row is changed or deleted.
+     *
+     * @param id    The id of the changed row.
+     */
+    public void invalidate(String id) {
+        long now = clock.incrementAndGet();
+        Stripe stripe = stripeOf(id);
+
+        synchronized (stripe) {
+            // concurrent invalidations may take the lock out of order: the stamp never goes back
+            stripe.invalidatedAt = Math.max(stripe.invalidatedAt, now);
+            remove(stripe, id);
+        }
+    }
+
+    /**
+     * Drops every row from the cache.
+     */
+    public void clear() {
+        long now = clock.incrementAndGet();
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.invalidatedAt = Math.max(stripe.invalidatedAt, now);
+                stripe.entries.values().forEach(entry -> removeSecondary(entry.snapshot()));
+                stripe.entries.clear();
+            }
+        }
+    }
+
+    /**
+     * @return      A snapshot of the cache counters.
+     */
+    public CacheStats stats() {
+        int size = 0;
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+
+        return new CacheStats(size, hits.sum(), misses.sum(), evictions.sum(), loads.sum(), totalLoadNanos.sum());
+    }
+
+    private Stripe stripeOf(String id) {
+        int h = id.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void remove(Stripe stripe, String id) {
+        Entry entry = stripe.entries.remove(id);
+
+        if (entry != null) {
+            removeSecondary(entry.snapshot());
+        }
+    }
+
+    private void removeSecondary(UserSnapshot snapshot) {
+        idByEmail.remove(snapshot.email(), snapshot.id());
+        idByUsername.remove(snapshot.username(), snapshot.id());
+    }
+}
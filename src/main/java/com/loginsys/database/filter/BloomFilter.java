@@ -0,0 +1,105 @@
+package com.loginsys.database.filter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed-size Bloom filter of strings, safe for concurrent adds and lookups.
+ * Strings are normalized by lower-casing each character before hashing, so {@code "John"} and {@code "john"} are the same
+ * entry: this can only add false positives, never hide a string which was added.
+ * <p>
+ * Entries cannot be removed; {@code IdentityFilter} rebuilds a new filter instead.
+ */
+class BloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+
+    /**
+     * @param capacity      The number of entries the filter is sized for.
+     * @param fpp           The wanted false positive probability once {@code capacity} entries are added.
+     */
+    BloomFilter(long capacity, double fpp) {
+        if (capacity < 1) throw new IllegalArgumentException("Filter capacity must be at least 1: " + capacity);
+        if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("False positive probability must be in (0, 1): " + fpp);
+
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+
+        this.words = new long[Math.toIntExact(Math.max(1, (optimalBits + 63) / 64))];
+        this.bits = words.length * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+    }
+
+    void add(CharSequence value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9e3779b97f4a7c15L) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+
+            // skip the atomic write when the bit is already set, which is the common case for popular words
+            if (((long) WORDS.getAcquire(words, word) & mask) == 0) {
+                WORDS.getAndBitwiseOr(words, word, mask);
+            }
+        }
+    }
+
+    /**
+     * @param value     The string to look up.
+     * @return          False if the string was definitely never added; true if it may have been.
+     */
+    boolean mightContain(CharSequence value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9e3779b97f4a7c15L) | 1;
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+
+            if (((long) WORDS.getAcquire(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param entries   The number of distinct entries added.
+     * @return          The expected false positive probability with that many entries.
+     */
+    double expectedFpp(long entries) {
+        return Math.pow(1 - Math.exp(-(double) hashes * entries / bits), hashes);
+    }
+
+    long memoryBytes() {
+        return words.length * 8L;
+    }
+
+    /**
+     * FNV-1a over the lower-cased characters, finished with a 64-bit mixer so that the low bits are usable.
+     */
+    private static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            h ^= Character.toLowerCase(value.charAt(i));
+            h *= 0x100000001b3L;
+        }
+
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,32 @@
+package com.loginsys.database.filter;
+
+/**
+ * A point-in-time snapshot of an {@code IdentityFilter} counters.
+ *
+ * @param ready             False while the first build from the database is running; every lookup goes to the database until then.
+ * @param entries           Emails and usernames added since the last build, including stale ones.
+ * @param stale             Entries belonging to deleted users or replaced values, which now only cause false positives.
+ * @param rebuilds          Completed builds from the database.
+ * @param memoryBytes       Memory used by the bit arrays, including a filter being rebuilt.
+ * @param expectedFpp       False positive probability expected from the current number of entries.
+ * @param definiteMisses    Lookups answered by the filter without a database query.
+ * @param falsePositives    Lookups the filter let through which found no user.
+ */
+public record FilterStats(boolean ready, long entries, long stale, long rebuilds, long memoryBytes,
+                          double expectedFpp, long definiteMisses, long falsePositives) {
+
+    /**
+     * @return      The measured false positive rate: the fraction of lookups of nonexistent users the filter let through.
+     */
+    public double observedFpp() {
+        long negatives = definiteMisses + falsePositives;
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    @Override
+    public String toString() {
+        return "ready=%b entries=%d stale=%d rebuilds=%d memory=%dKiB expectedFpp=%.4f observedFpp=%.4f definiteMisses=%d falsePositives=%d".formatted(
+                ready, entries, stale, rebuilds, memoryBytes / 1024, expectedFpp, observedFpp(), definiteMisses, falsePositives
+        );
+    }
+}
@@ -0,0 +1,287 @@
+package com.loginsys.database.filter;
+
+import com.loginsys.database.property.Property;
+import com.loginsys.management.user.UserSnapshot;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bloom filters over every registered email and username, so that lookups of nonexistent users, which are most of the
+ * credential stuffing traffic, are answered without querying the database.
+ * <p>
+ * The filters are built from the database by {@link #rebuild()}; until the first build is done every lookup is let through.
+ * Writers keep them up to date: new values are added with {@link #addPending(Property, String)} before the write and
+ * with {@link #add(Property, String)} after it, so that neither a lookup racing with the commit nor a rebuild racing with
+ * the write can miss them. Values which are deleted or replaced cannot be removed from a Bloom filter: they are counted as
+ * stale through {@link #markStale(int)}, and the filters are rebuilt in background once too many of them are stale
+ * or once more values than planned were added.
+ */
+public class IdentityFilter {
+
+    /**
+     * Where the filters are built from.
+     */
+    public interface Source {
+
+        /**
+         * @return      The number of users, used to size the filters.
+         */
+        long count();
+
+        /**
+         * @param action    Called once for each user.
+         */
+        void forEachUser(Consumer<UserSnapshot> action);
+    }
+
+    /**
+     * One build of the filters, with the values added to it since.
+     */
+    private static final class Generation {
+        final BloomFilter emails;
+        final BloomFilter usernames;
+        final long capacity;
+        final LongAdder entries = new LongAdder();
+        final LongAdder stale = new LongAdder();
+
+        Generation(long capacity, double fpp) {
+            this.emails = new BloomFilter(capacity, fpp);
+            this.usernames = new BloomFilter(capacity, fpp);
+            this.capacity = capacity;
+        }
+
+        BloomFilter of(Property property) {
+            return property == Property.EMAIL ? emails : usernames;
+        }
+    }
+
+    /**
+     * Stale values below this count never trigger a rebuild, so that small tables are not rebuilt on every delete.
+     */
+    private static final long MIN_STALE_FOR_REBUILD = 1024;
+
+    private final boolean enabled;
+    private final double fpp;
+    private final long minCapacity;
+    private final Source source;
+
+    private volatile Generation current;
+    private volatile Generation next;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param enabled       False to let every lookup through, without building anything.
+     * @param fpp           The wanted false positive probability of each filter.
+     * @param minCapacity   The minimum number of values each filter is sized for.
+     * @param source        Where the filters are built from.
+     */
+    public IdentityFilter(boolean enabled, double fpp, long minCapacity, Source source) {
+        if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("False positive probability must be in (0, 1): " + fpp);
+        if (minCapacity < 1) throw new IllegalArgumentException("Filter capacity must be at least 1: " + minCapacity);
+
+        this.enabled = enabled;
+        this.fpp = fpp;
+        this.minCapacity = minCapacity;
+        this.source = source;
+    }
+
+    /**
+     * Creates a filter configured by the {@code loginsys.filter.enabled} (default: true), {@code loginsys.filter.fpp}
+     * (default: 0.01) and {@code loginsys.filter.capacity} (default: 100000 values) system properties.
+     *
+     * @param source    Where the filters are built from.
+     * @return          The new filter, not built yet.
+     */
+    public static IdentityFilter fromSystemProperties(Source source) {
+        return new IdentityFilter(
+                Boolean.parseBoolean(System.getProperty("loginsys.filter.enabled", "true")),
+                Double.parseDouble(System.getProperty("loginsys.filter.fpp", "0.01")),
+                Long.getLong("loginsys.filter.capacity", 100_000),
+                source
+        );
+    }
+
+    /**
+     * @param property      The property looked up.
+     * @param value         The value looked up.
+     * @return              False if no user definitely has that email or username; true if one may have it,
+     *                      or if the property is not filtered (e.g. ID).
+     */
+    public boolean mightContain(Property property, String value) {
+        if (property != Property.EMAIL && property != Property.USERNAME) {
+            return true;
+        }
+
+        Generation generation = current;
+
+        if (generation == null || generation.of(property).mightContain(value)) {
+            return true;
+        }
+
+        definiteMisses.increment();
+        return false;
+    }
+
+    /**
+     * Records that a lookup let through by {@link #mightContain(Property, String)} found no user.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Adds a value which is about to be written, so that lookups running while it is committed already see it.
+     * Values added this way are not counted: {@link #add(Property, String)} must be called once the write succeeded.
+     *
+     * @param property      EMAIL or USERNAME; other properties are ignored.
+     * @param value         The value being written.
+     */
+    public void addPending(Property property, String value) {
+        put(property, value, false);
+    }
+
+    /**
+     * Adds a value which was written.
+     *
+     * @param property      EMAIL or USERNAME; other properties are ignored.
+     * @param value         The written value.
+     */
+    public void add(Property property, String value) {
+        put(property, value, true);
+    }
+
+    /**
+     * Records values which no user has anymore, because they were replaced or their user was deleted.
+     *
+     * @param values    The number of emails and usernames which became stale.
+     */
+    public void markStale(int values) {
+        Generation next = this.next;
+        Generation generation = current;
+
+        if (next != null) next.stale.add(values);
+        if (generation != null) {
+            generation.stale.add(values);
+            rebuildIfNeeded(generation);
+        }
+    }
+
+    /**
+     * Builds new filters from the source and replaces the current ones. Values added while the build runs go to both.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long users = source.count();
+        Generation building = new Generation(Math.max(minCapacity, users + users / 2), fpp);
+
+        // next must be published before the scan starts, see put
+        next = building;
+
+        try {
+            source.forEachUser(user -> {
+                building.emails.add(user.email());
+                building.usernames.add(user.username());
+                building.entries.add(2);
+            });
+
+            current = building;
+            rebuilds.increment();
+        }
+
+        finally {
+            next = null;
+        }
+    }
+
+    /**
+     * Starts {@link #rebuild()} on a background thread, unless a rebuild is already running.
+     */
+    public void rebuildInBackground() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            }
+
+            finally {
+                rebuilding.set(false);
+            }
+        }, "identity-filter-rebuild");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return      A snapshot of the filter counters.
+     */
+    public FilterStats stats() {
+        Generation next = this.next;
+        Generation generation = current;
+
+        long memory = next != null ? next.emails.memoryBytes() + next.usernames.memoryBytes() : 0;
+
+        if (generation == null) {
+            return new FilterStats(false, 0, 0, rebuilds.sum(), memory, 1, definiteMisses.sum(), falsePositives.sum());
+        }
+
+        long entries = generation.entries.sum();
+
+        return new FilterStats(
+                true,
+                entries,
+                generation.stale.sum(),
+                rebuilds.sum(),
+                memory + generation.emails.memoryBytes() + generation.usernames.memoryBytes(),
+                generation.emails.expectedFpp(entries / 2),
+                definiteMisses.sum(),
+                falsePositives.sum()
+        );
+    }
+
+    private void put(Property property, String value, boolean written) {
+        if (property != Property.EMAIL && property != Property.USERNAME) {
+            return;
+        }
+
+        // next is read before current: a rebuild publishes next before it starts scanning and swaps current before
+        // clearing next, so every value is added either to the new filters or to the rows they are built from
+        Generation next = this.next;
+        Generation generation = current;
+
+        if (next != null) {
+            next.of(property).add(value);
+            if (written) next.entries.increment();
+        }
+
+        if (generation != null && generation != next) {
+            generation.of(property).add(value);
+
+            if (written) {
+                generation.entries.increment();
+                rebuildIfNeeded(generation);
+            }
+        }
+    }
+
+    private void rebuildIfNeeded(Generation generation) {
+        long entries = generation.entries.sum();
+        long stale = generation.stale.sum();
+
+        if (entries / 2 > generation.capacity || stale > Math.max(entries / 4, MIN_STALE_FOR_REBUILD)) {
+            rebuildInBackground();
+        }
+    }
+}
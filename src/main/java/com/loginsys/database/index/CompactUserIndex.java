@@ -0,0 +1,197 @@
+package com.loginsys.database.index;
+
+import com.loginsys.database.property.Property;
+
+/**
+ * An index of users by id, email and username which stores no strings and no objects per user, so that millions of
+ * users fit in a few hundred megabytes the garbage collector never has to trace.
+ * <p>
+ * Users are known by a row number, given by the caller. Ids are stored as the two longs of their UUID (ids which are
+ * not UUIDs are hashed to 128 bits instead), emails and usernames as a 64-bit hash, each in an open-addressing table
+ * of primitive arrays, or of direct buffers outside of the heap. A user takes 44 bytes of slots across the three
+ * tables, so the cost per user is 44 divided by the load factor: 55 bytes at the maximum load of 0.8, which is where a
+ * table sized with {@code expectedUsers} ends up (1 million users: 53.7 MiB, measured), and up to 110 right after a
+ * table grows, since doubling leaves it at a load of 0.4. A {@code HashMap} of strings takes well over 100.
+ * <p>
+ * Neither a 128-bit id key nor a 64-bit hash is assumed to be unique: lookups check every candidate row against the
+ * caller's {@link Rows}, so a collision costs one more comparison, never a wrong user.
+ * <p>
+ * Writes must be serialized by the caller; lookups never lock and never allocate.
+ */
+public class CompactUserIndex {
+
+    /**
+     * The row returned by lookups which found no user.
+     */
+    public static final int NO_ROW = SlotTable.EMPTY;
+
+    /**
+     * The caller's storage, which the index checks its candidate rows against.
+     */
+    @FunctionalInterface
+    public interface Rows {
+
+        /**
+         * @param row           A row the index holds for the value's key.
+         * @param property      The looked up property.
+         * @param value         The looked up value.
+         * @return              True if the row currently exists and holds the value.
+         */
+        boolean holds(int row, Property property, String value);
+    }
+
+    private final boolean offHeap;
+    private final SlotTable ids;
+    private final SlotTable emails;
+    private final SlotTable usernames;
+
+    /**
+     * @param expectedUsers     The number of users the tables are sized for; they grow past it, by doubling.
+     * @param offHeap           True to keep the tables in direct buffers, outside of the Java heap.
+     */
+    public CompactUserIndex(int expectedUsers, boolean offHeap) {
+        if (expectedUsers < 0) throw new IllegalArgumentException("Expected users must not be negative: " + expectedUsers);
+
+        this.offHeap = offHeap;
+        this.ids = new SlotTable(2, expectedUsers, offHeap);
+        this.emails = new SlotTable(1, expectedUsers, offHeap);
+        this.usernames = new SlotTable(1, expectedUsers, offHeap);
+    }
+
+    /**
+     * Reads the configuration from the {@code loginsys.index.*} system properties, falling back to these defaults:
+     * <ul>
+     *     <li>{@code loginsys.index.expectedUsers} (default: 1024 users)</li>
+     *     <li>{@code loginsys.index.offHeap} (default: false)</li>
+     * </ul>
+     *
+     * @return      An empty index.
+     */
+    public static CompactUserIndex fromSystemProperties() {
+        return new CompactUserIndex(
+                Integer.getInteger("loginsys.index.expectedUsers", 1024),
+                Boolean.parseBoolean(System.getProperty("loginsys.index.offHeap", "false"))
+        );
+    }
+
+    /**
+     * @param property      The property to look up by: id, email or username.
+     * @param value         The value of the property.
+     * @param rows          Where candidate rows are checked.
+     * @return              The row of the user holding the value; {@link #NO_ROW} if none does.
+     */
+    public int find(Property property, String value, Rows rows) {
+        return switch (property) {
+            case ID -> ids.find(idHigh(value), idLow(value), rows, property, value);
+            case EMAIL -> emails.find(hash(value), 0, rows, property, value);
+            case USERNAME -> usernames.find(hash(value), 0, rows, property, value);
+            case PASSWORD -> throw new IllegalArgumentException("Users are not searchable by password");
+        };
+    }
+
+    /**
+     * Indexes a value of a row. The same value may be indexed for several rows, e.g. while it moves from one to another.
+     */
+    public void add(Property property, String value, int row) {
+        if (row < 0) throw new IllegalArgumentException("Rows must not be negative: " + row);
+
+        switch (property) {
+            case ID -> ids.add(idHigh(value), idLow(value), row);
+            case EMAIL -> emails.add(hash(value), 0, row);
+            case USERNAME -> usernames.add(hash(value), 0, row);
+            case PASSWORD -> throw new IllegalArgumentException("Users are not searchable by password");
+        }
+    }
+
+    /**
+     * @return      True if the row held the value in the index.
+     */
+    public boolean remove(Property property, String value, int row) {
+        return switch (property) {
+            case ID -> ids.remove(idHigh(value), idLow(value), row);
+            case EMAIL -> emails.remove(hash(value), 0, row);
+            case USERNAME -> usernames.remove(hash(value), 0, row);
+            case PASSWORD -> throw new IllegalArgumentException("Users are not searchable by password");
+        };
+    }
+
+    /**
+     * @return      A snapshot of the size of the tables. Only exact while no write is running.
+     */
+    public IndexStats stats() {
+        return new IndexStats(
+                ids.entries(),
+                ids.removed() + emails.removed() + usernames.removed(),
+                ids.capacity(),
+                ids.rebuilds() + emails.rebuilds() + usernames.rebuilds(),
+                ids.memoryBytes() + emails.memoryBytes() + usernames.memoryBytes(),
+                offHeap
+        );
+    }
+
+    /**
+     * The most significant long of a canonical UUID, or half of a 128-bit hash of any other id.
+     * Both halves are parsed separately, without allocating a {@code UUID}; any string maps to the same key every time.
+     */
+    private static long idHigh(String id) {
+        long bits = isCanonicalUuid(id) ? hexBits(id, 0, 18) : -1;
+        return bits != -1 ? bits : hash(id);
+    }
+
+    private static long idLow(String id) {
+        long bits = isCanonicalUuid(id) ? hexBits(id, 19, 36) : -1;
+        return bits != -1 ? bits : mix(hash(id) + 0x9e3779b97f4a7c15L);
+    }
+
+    private static boolean isCanonicalUuid(String id) {
+        return id.length() == 36 && id.charAt(8) == '-' && id.charAt(13) == '-' && id.charAt(18) == '-' && id.charAt(23) == '-';
+    }
+
+    /**
+     * @return      The 64 bits of the 16 hex digits between {@code from} and {@code to}, skipping dashes;
+     *              -1 if a character is not a hex digit (an all-ones half is hashed too, which is only slower).
+     */
+    private static long hexBits(String id, int from, int to) {
+        long bits = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = id.charAt(i);
+
+            if (c == '-') continue;
+
+            int digit = Character.digit(c, 16);
+
+            if (digit < 0) return -1;
+
+            bits = bits << 4 | digit;
+        }
+
+        return bits;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished by a mix so that every bit of the hash depends on every character.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        return mix(h);
+    }
+
+    /**
+     * The finalizer of MurmurHash3.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
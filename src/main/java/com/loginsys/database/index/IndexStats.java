@@ -0,0 +1,28 @@
+package com.loginsys.database.index;
+
+/**
+ * A point-in-time snapshot of the size of a {@code CompactUserIndex}.
+ *
+ * @param users         Users indexed by id.
+ * @param tombstones    Slots of removed entries, in all the tables, reclaimed by the next rebuild.
+ * @param capacity      Slots of every table.
+ * @param rebuilds      Rebuilds of the tables, to grow or to drop tombstones.
+ * @param memoryBytes   Memory used by the slots of the three tables.
+ * @param offHeap       True if the slots live in direct buffers, outside of the Java heap.
+ */
+public record IndexStats(long users, long tombstones, long capacity, long rebuilds, long memoryBytes, boolean offHeap) {
+
+    /**
+     * @return      The bytes of index per indexed user, 0 if there are none.
+     */
+    public double bytesPerUser() {
+        return users == 0 ? 0 : (double) memoryBytes / users;
+    }
+
+    @Override
+    public String toString() {
+        return "users=%d tombstones=%d capacity=%d rebuilds=%d memory=%dKiB bytesPerUser=%.1f offHeap=%b".formatted(
+                users, tombstones, capacity, rebuilds, memoryBytes / 1024, bytesPerUser(), offHeap
+        );
+    }
+}
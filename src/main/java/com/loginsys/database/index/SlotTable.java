@@ -0,0 +1,184 @@
+package com.loginsys.database.index;
+
+import com.loginsys.database.property.Property;
+
+/**
+ * An open-addressing hash table from keys of one or two longs to row numbers, with linear probing.
+ * <p>
+ * Different rows may share a key (two emails with the same hash): every slot holding the key is a candidate, and the
+ * caller checks the candidates against the rows themselves. Removed slots become tombstones until the next rebuild.
+ * <p>
+ * Writes must be serialized by the caller. Reads never lock: a rebuild fills new slots and publishes them at once,
+ * so a reader sees either the old slots or the new ones.
+ */
+class SlotTable {
+
+    static final int EMPTY = -1;
+    static final int REMOVED = -2;
+
+    private static final double MAX_LOAD = 0.8;
+
+    private final int keyWords;
+    private final boolean offHeap;
+
+    private volatile Slots slots;
+    private int entries = 0;
+    private int removed = 0;
+    private long rebuilds = 0;
+
+    /**
+     * @param keyWords      The number of longs of every key, 1 or 2.
+     * @param expected      The number of entries the table is sized for; it grows past it.
+     * @param offHeap       True to keep the slots outside of the Java heap.
+     */
+    SlotTable(int keyWords, int expected, boolean offHeap) {
+        this.keyWords = keyWords;
+        this.offHeap = offHeap;
+        this.slots = Slots.allocate(capacityFor(expected), keyWords, offHeap, EMPTY);
+    }
+
+    /**
+     * @param key0          The first long of the key.
+     * @param key1          The second long of the key, ignored by single-word tables.
+     * @param rows          Where the candidate rows are checked.
+     * @param property      The property the key was derived from.
+     * @param value         The value the key was derived from, which the returned row must hold.
+     * @return              The first row holding the key and the value; {@code EMPTY} if none does.
+     */
+    int find(long key0, long key1, CompactUserIndex.Rows rows, Property property, String value) {
+        Slots current = slots;
+        int slot = first(hashOf(key0, key1), current.capacity);
+
+        for (int probes = 0; probes < current.capacity; probes++) {
+            int row = current.row(slot);
+
+            if (row == EMPTY) break;
+
+            if (row >= 0 && current.key(slot, 0) == key0 && (keyWords == 1 || current.key(slot, 1) == key1)
+                    && rows.holds(row, property, value)) {
+                return row;
+            }
+
+            if (++slot == current.capacity) slot = 0;
+        }
+
+        return EMPTY;
+    }
+
+    void add(long key0, long key1, int row) {
+        int capacity = slots.capacity;
+
+        // grow when live entries fill the table, otherwise only clear the tombstones
+        if (entries + removed + 1 > capacity * MAX_LOAD) {
+            rebuild(entries + 1 > capacity * MAX_LOAD / 2 ? Math.max(capacity, Math.multiplyExact(capacity, 2)) : capacity);
+        }
+
+        Slots current = slots;
+        int slot = first(hashOf(key0, key1), current.capacity);
+
+        while (current.row(slot) >= 0) {
+            if (++slot == current.capacity) slot = 0;
+        }
+
+        if (current.row(slot) == REMOVED) removed--;
+
+        current.setKey(slot, 0, key0);
+        if (keyWords == 2) current.setKey(slot, 1, key1);
+        current.setRow(slot, row);
+        entries++;
+    }
+
+    /**
+     * @return      True if the key was held by the row and is not anymore.
+     */
+    boolean remove(long key0, long key1, int row) {
+        Slots current = slots;
+        int slot = first(hashOf(key0, key1), current.capacity);
+
+        for (int probes = 0; probes < current.capacity; probes++) {
+            int held = current.row(slot);
+
+            if (held == EMPTY) break;
+
+            if (held == row && current.key(slot, 0) == key0 && (keyWords == 1 || current.key(slot, 1) == key1)) {
+                current.setRow(slot, REMOVED);
+                entries--;
+                removed++;
+                return true;
+            }
+
+            if (++slot == current.capacity) slot = 0;
+        }
+
+        return false;
+    }
+
+    int entries() {
+        return entries;
+    }
+
+    int removed() {
+        return removed;
+    }
+
+    long rebuilds() {
+        return rebuilds;
+    }
+
+    int capacity() {
+        return slots.capacity;
+    }
+
+    long memoryBytes() {
+        return slots.memoryBytes();
+    }
+
+    /**
+     * Copies the live entries into new slots, dropping the tombstones, then publishes them.
+     */
+    private void rebuild(int capacity) {
+        Slots old = slots;
+        Slots fresh = Slots.allocate(capacity, keyWords, offHeap, EMPTY);
+
+        for (int slot = 0; slot < old.capacity; slot++) {
+            int row = old.row(slot);
+
+            if (row < 0) continue;
+
+            long key0 = old.key(slot, 0);
+            long key1 = keyWords == 2 ? old.key(slot, 1) : 0;
+            int target = first(hashOf(key0, key1), fresh.capacity);
+
+            while (fresh.row(target) != EMPTY) {
+                if (++target == fresh.capacity) target = 0;
+            }
+
+            fresh.setKey(target, 0, key0);
+            if (keyWords == 2) fresh.setKey(target, 1, key1);
+            fresh.setRow(target, row);
+        }
+
+        slots = fresh;
+        removed = 0;
+        rebuilds++;
+    }
+
+    /**
+     * The probing hash of a key: the key itself for single-word tables, whose keys are already hashes, and a mix of
+     * both words for the others.
+     */
+    private long hashOf(long key0, long key1) {
+        return keyWords == 1 ? key0 : CompactUserIndex.mix(key0 ^ Long.rotateLeft(key1, 32));
+    }
+
+    /**
+     * Maps the hash onto {@code [0, capacity)} with a multiplication instead of a modulo, so that any capacity works.
+     */
+    private static int first(long hash, int capacity) {
+        return (int) Math.unsignedMultiplyHigh(hash, capacity);
+    }
+
+    private static int capacityFor(int entries) {
+        return Math.max(16, Math.toIntExact((long) Math.ceil(entries / MAX_LOAD)));
+    }
+}
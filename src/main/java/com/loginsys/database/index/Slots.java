@@ -0,0 +1,130 @@
+package com.loginsys.database.index;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The fixed-capacity storage of a {@code SlotTable}: for every slot, a key of one or two longs and a row number.
+ * <p>
+ * The row of a slot is written with release semantics after its key, and read with acquire semantics before it, so a
+ * reader which sees a row also sees the key written with it.
+ */
+abstract class Slots {
+
+    final int capacity;
+    final int keyWords;
+
+    Slots(int capacity, int keyWords) {
+        this.capacity = capacity;
+        this.keyWords = keyWords;
+    }
+
+    /**
+     * @param capacity      The number of slots.
+     * @param keyWords      The number of longs of every key, 1 or 2.
+     * @param offHeap       True to allocate the slots in direct buffers, outside of the Java heap.
+     * @param empty         The row every slot starts with.
+     * @return              The new slots.
+     */
+    static Slots allocate(int capacity, int keyWords, boolean offHeap, int empty) {
+        Slots slots = offHeap ? new Direct(capacity, keyWords) : new Heap(capacity, keyWords);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            slots.setRow(slot, empty);
+        }
+
+        return slots;
+    }
+
+    abstract long key(int slot, int word);
+
+    abstract void setKey(int slot, int word, long value);
+
+    abstract int row(int slot);
+
+    abstract void setRow(int slot, int row);
+
+    /**
+     * @return      The bytes taken by the keys and the rows.
+     */
+    long memoryBytes() {
+        return (long) capacity * (keyWords * Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Slots in two primitive arrays.
+     */
+    private static final class Heap extends Slots {
+
+        private static final VarHandle ROWS = MethodHandles.arrayElementVarHandle(int[].class);
+
+        private final long[] keys;
+        private final int[] rows;
+
+        Heap(int capacity, int keyWords) {
+            super(capacity, keyWords);
+            this.keys = new long[Math.multiplyExact(capacity, keyWords)];
+            this.rows = new int[capacity];
+        }
+
+        @Override
+        long key(int slot, int word) {
+            return keys[slot * keyWords + word];
+        }
+
+        @Override
+        void setKey(int slot, int word, long value) {
+            keys[slot * keyWords + word] = value;
+        }
+
+        @Override
+        int row(int slot) {
+            return (int) ROWS.getAcquire(rows, slot);
+        }
+
+        @Override
+        void setRow(int slot, int row) {
+            ROWS.setRelease(rows, slot, row);
+        }
+    }
+
+    /**
+     * Slots in two direct buffers, which the garbage collector never scans nor copies.
+     */
+    private static final class Direct extends Slots {
+
+        private static final VarHandle KEYS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+        private static final VarHandle ROWS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+        private final ByteBuffer keys;
+        private final ByteBuffer rows;
+
+        Direct(int capacity, int keyWords) {
+            super(capacity, keyWords);
+            this.keys = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, keyWords * Long.BYTES));
+            this.rows = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, Integer.BYTES));
+        }
+
+        @Override
+        long key(int slot, int word) {
+            return (long) KEYS.get(keys, (slot * keyWords + word) * Long.BYTES);
+        }
+
+        @Override
+        void setKey(int slot, int word, long value) {
+            KEYS.set(keys, (slot * keyWords + word) * Long.BYTES, value);
+        }
+
+        @Override
+        int row(int slot) {
+            return (int) ROWS.getAcquire(rows, slot * Integer.BYTES);
+        }
+
+        @Override
+        void setRow(int slot, int row) {
+            ROWS.setRelease(rows, slot * Integer.BYTES, row);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.loginsys.database.pool;
+
+import com.loginsys.exceptions.ConnectionPoolTimeoutException;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of long-lived JDBC connections.
+ * At most {@code maxSize} connections are borrowed at the same time; callers exceeding that limit wait up to
+ * {@code borrowTimeout} and then get a {@code ConnectionPoolTimeoutException}.
+ * Idle connections are reused most-recently-used first, validated before reuse when they sat idle for too long,
+ * and closed by a background evictor once they exceed {@code idleTimeout}.
+ * <p>
+ * A read-only pool opens its connections with {@code SQLITE_OPEN_READONLY} and {@code pragma query_only}, and only
+ * precompiles the queries: any write attempted on them fails instead of taking the database's write lock.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final String connectionString;
+    private final PoolConfig config;
+    private final List<String> connectionPragmas;
+    private final boolean readOnly;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a new, empty pool of read-write connections. Connections are opened lazily on the first borrows.
+     *
+     * @param connectionString      The JDBC address of the database.
+     * @param config                The pool tunables.
+     * @param connectionPragmas     Statements run on every new connection before it is handed out.
+     */
+    public ConnectionPool(String connectionString, PoolConfig config, List<String> connectionPragmas) {
+        this(connectionString, config, connectionPragmas, false);
+    }
+
+    /**
+     * Creates a new, empty pool. Connections are opened lazily on the first borrows.
+     *
+     * @param connectionString      The JDBC address of the database, which must already exist if {@code readOnly}.
+     * @param config                The pool tunables.
+     * @param connectionPragmas     Statements run on every new connection before it is handed out.
+     * @param readOnly              True to open read-only connections, which can only run queries.
+     */
+    public ConnectionPool(String connectionString, PoolConfig config, List<String> connectionPragmas, boolean readOnly) {
+        this.connectionString = connectionString;
+        this.config = config;
+        this.connectionPragmas = List.copyOf(connectionPragmas);
+        this.readOnly = readOnly;
+        this.permits = new Semaphore(config.maxSize(), true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long period = Math.max(1_000, config.idleTimeout().toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle.
+     *
+     * @return      A connection which must be closed to give it back to the pool.
+     * @throws ConnectionPoolTimeoutException   If no connection gets free within the configured borrow timeout.
+     */
+    public PooledConnection borrow() throws ConnectionPoolTimeoutException {
+
+        if (closed) {
+            throw new IllegalStateException("The connection pool has been closed.");
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(config.borrowTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new ConnectionPoolTimeoutException(
+                        "No database connection available after " + config.borrowTimeout().toMillis() + "ms"
+                );
+            }
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            PooledConnection pooled;
+
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isHealthy(pooled)) break;
+                discard(pooled);
+            }
+
+            if (pooled == null) {
+                pooled = open();
+            }
+
+            pooled.lend();
+            active.incrementAndGet();
+            borrows.increment();
+            return pooled;
+        }
+
+        catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e instanceof RuntimeException runtime ? runtime : new RuntimeException(e);
+        }
+    }
+
+    void release(PooledConnection pooled) {
+        active.decrementAndGet();
+
+        try {
+            Connection connection = pooled.connection();
+
+            if (closed || connection.isClosed()) {
+                discard(pooled);
+            }
+
+            else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+        }
+
+        catch (SQLException e) {
+            discard(pooled);
+        }
+
+        finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return      A snapshot of the pool counters.
+     */
+    public PoolMetrics metrics() {
+        return new PoolMetrics(
+                active.get(),
+                idle.size(),
+                borrows.sum(),
+                timeouts.sum(),
+                totalWaitNanos.sum(),
+                maxWaitNanos.get()
+        );
+    }
+
+    /**
+     * @return      The number of connections which can still be borrowed without waiting.
+     */
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Closes every idle connection and stops the evictor. Borrowed connections are closed as soon as they are given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Properties properties = new Properties();
+
+        if (readOnly) {
+            // the sqlite-jdbc name of the sqlite3_open_v2 flags; 1 is SQLITE_OPEN_READONLY
+            properties.setProperty("open_mode", "1");
+        }
+
+        Connection connection = DriverManager.getConnection(connectionString, properties);
+
+        try {
+            try (Statement stm = connection.createStatement()) {
+                stm.execute("pragma busy_timeout = " + config.borrowTimeout().toMillis());
+
+                for (String pragma : connectionPragmas) {
+                    stm.execute(pragma);
+                }
+
+                if (readOnly) {
+                    stm.execute("pragma query_only = true");
+                }
+            }
+
+            return new PooledConnection(this, connection, readOnly);
+        }
+
+        catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private boolean isHealthy(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastUsedNanos() < config.validationInterval().toNanos()) {
+            return true;
+        }
+
+        try {
+            return pooled.connection().isValid(1);
+        }
+
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+
+        for (PooledConnection pooled : idle) {
+            if (now - pooled.lastUsedNanos() > config.idleTimeout().toNanos() && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.closeStatements();
+
+        try {
+            pooled.connection().close();
+        }
+
+        catch (SQLException ignored) {
+            // the connection is being thrown away anyway
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.loginsys.database.pool;
+
+import java.time.Duration;
+
+/**
+ * The tunables of a {@code ConnectionPool}.
+ *
+ * @param maxSize               The maximum number of connections open at the same time.
+ * @param borrowTimeout         How long a caller waits for a free connection before giving up.
+ * @param idleTimeout           How long a connection may stay unused before it gets closed by the evictor.
+ * @param validationInterval    Idle connections older than this are checked with {@code isValid} before being handed out.
+ */
+public record PoolConfig(int maxSize, Duration borrowTimeout, Duration idleTimeout, Duration validationInterval) {
+
+    public PoolConfig {
+        if (maxSize < 1) throw new IllegalArgumentException("Pool size must be at least 1: " + maxSize);
+    }
+
+    /**
+     * Reads the configuration from the {@code loginsys.pool.*} system properties, falling back to sensible defaults:
+     * <ul>
+     *     <li>{@code loginsys.pool.size} (default: available processors, at least 2)</li>
+     *     <li>{@code loginsys.pool.borrowTimeoutMs} (default: 5000)</li>
+     *     <li>{@code loginsys.pool.idleTimeoutMs} (default: 60000)</li>
+     *     <li>{@code loginsys.pool.validationIntervalMs} (default: 30000)</li>
+     * </ul>
+     *
+     * @return      The resulting configuration.
+     */
+    public static PoolConfig fromSystemProperties() {
+        return new PoolConfig(
+                Integer.getInteger("loginsys.pool.size", Math.max(2, Runtime.getRuntime().availableProcessors())),
+                Duration.ofMillis(Long.getLong("loginsys.pool.borrowTimeoutMs", 5_000)),
+                Duration.ofMillis(Long.getLong("loginsys.pool.idleTimeoutMs", 60_000)),
+                Duration.ofMillis(Long.getLong("loginsys.pool.validationIntervalMs", 30_000))
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package com.loginsys.database.pool;
+
+/**
+ * A point-in-time snapshot of a {@code ConnectionPool} counters.
+ *
+ * @param active            Connections currently borrowed.
+ * @param idle              Connections open and waiting to be borrowed.
+ * @param borrows           Total successful borrows.
+ * @param timeouts          Total borrows that gave up waiting for a connection.
+ * @param totalWaitNanos    Sum of the time spent by callers waiting for a connection.
+ * @param maxWaitNanos      Longest time a single caller waited for a connection.
+ */
+public record PoolMetrics(int active, int idle, long borrows, long timeouts, long totalWaitNanos, long maxWaitNanos) {
+
+    /**
+     * @return      The average borrow wait time in nanoseconds, 0 if nothing was borrowed yet.
+     */
+    public long averageWaitNanos() {
+        return borrows == 0 ? 0 : totalWaitNanos / borrows;
+    }
+
+    @Override
+    public String toString() {
+        return "active=%d idle=%d borrows=%d timeouts=%d avgWait=%dus maxWait=%dus".formatted(
+                active, idle, borrows, timeouts, averageWaitNanos() / 1_000, maxWaitNanos / 1_000
+        );
+    }
+}
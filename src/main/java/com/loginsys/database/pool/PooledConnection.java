@@ -0,0 +1,87 @@
+package com.loginsys.database.pool;
+
+import com.loginsys.database.property.Property;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A connection borrowed from a {@code ConnectionPool}. Closing it gives the connection back to the pool
+ * instead of closing the underlying JDBC connection, so it is meant to be used in a try-with-resources block.
+ * Closing it more than once per borrow has no effect: the connection is only given back once.
+ */
+public final class PooledConnection implements AutoCloseable {
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final StatementCache statements;
+    private volatile long lastUsedNanos;
+    private final AtomicBoolean released = new AtomicBoolean(true);
+
+    PooledConnection(ConnectionPool pool, Connection connection, boolean readOnly) throws SQLException {
+        this.pool = pool;
+        this.connection = connection;
+        this.statements = new StatementCache(connection, readOnly);
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    /**
+     * @return      The underlying JDBC connection. It must not be closed directly.
+     */
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Returns the cached statement of this connection for a property-bound operation.
+     * The statement must not be closed; its parameters are overwritten by the next caller.
+     *
+     * @param operation     The operation to run.
+     * @param property      The property the operation works on.
+     * @return              The precompiled statement.
+     */
+    public PreparedStatement statement(SqlOperation operation, Property property) {
+        return statements.get(operation, property);
+    }
+
+    /**
+     * Returns the cached statement of this connection for an operation which does not depend on a property.
+     *
+     * @param operation     The operation to run.
+     * @return              The precompiled statement.
+     */
+    public PreparedStatement statement(SqlOperation operation) {
+        return statements.get(operation, null);
+    }
+
+    void closeStatements() {
+        statements.close();
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    /**
+     * Marks the connection as borrowed, so that the next {@link #close()} gives it back.
+     */
+    void lend() {
+        released.set(false);
+    }
+
+    void touch() {
+        lastUsedNanos = System.nanoTime();
+    }
+
+    /**
+     * Gives the connection back to its pool.
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.loginsys.database.pool;
+
+import com.loginsys.database.property.Property;
+
+import java.util.function.Predicate;
+
+/**
+ * Every statement {@code DatabaseManager} runs. Operations bound to a {@code Property} have a {@code %s} placeholder
+ * for the column name and are compiled once for each property accepted by their filter.
+ */
+public enum SqlOperation {
+
+    INSERT_USER(
+            "insert into Users (id, email, username, password) values (?,?,?,?)",
+            null
+    ),
+
+    INSERT_USER_IF_ABSENT(
+            "insert into Users (id, email, username, password) values (?,?,?,?) on conflict do nothing",
+            null
+    ),
+
+    COUNT_USERS(
+            "select count(*) from Users",
+            null
+    ),
+
+    SELECT_ALL_USERS(
+            "select * from Users order by rowid",
+            null
+    ),
+
+    SELECT_USER_BY(
+            "select * from Users where %s = ?",
+            property -> property.searchable
+    ),
+
+    UPDATE_BY_ID(
+            "update Users set %s = ? where id = ?",
+            property -> property.editable
+    ),
+
+    REPLACE_PASSWORD_BY_ID(
+            "update Users set password = ? where id = ? and password = ?",
+            null
+    ),
+
+    DELETE_USER_BY_ID(
+            "delete from Users where id = ?",
+            null
+    ),
+
+    INSERT_SESSION(
+            "insert into Sessions (token_hash, user_id, created_at, expires_at) values (?,?,?,?)",
+            null
+    ),
+
+    SELECT_LIVE_SESSIONS(
+            "select * from Sessions where expires_at > ?",
+            null
+    ),
+
+    UPDATE_SESSION_EXPIRY(
+            "update Sessions set expires_at = ? where token_hash = ?",
+            null
+    ),
+
+    DELETE_SESSION(
+            "delete from Sessions where token_hash = ?",
+            null
+    ),
+
+    DELETE_SESSIONS_OF_USER(
+            "delete from Sessions where user_id = ?",
+            null
+    ),
+
+    DELETE_EXPIRED_SESSIONS(
+            "delete from Sessions where expires_at <= ?",
+            null
+    ),
+
+    SAVEPOINT_WRITE(
+            "savepoint write",
+            null
+    ),
+
+    RELEASE_WRITE(
+            "release write",
+            null
+    ),
+
+    ROLLBACK_TO_WRITE(
+            "rollback to write",
+            null
+    );
+
+    private SqlOperation(String template, Predicate<Property> accepts) {
+        this.template = template;
+        this.accepts = accepts;
+    }
+
+    /**
+     * @return      True if the statement only reads, so that it can run on a read-only connection.
+     */
+    public boolean isQuery() {
+        return template.startsWith("select ");
+    }
+
+    /**
+     * @return      True if the statement depends on a {@code Property}.
+     */
+    public boolean perProperty() {
+        return accepts != null;
+    }
+
+    /**
+     * @param property      The property the statement works on.
+     * @return              True if this operation can be run on the given property.
+     */
+    public boolean accepts(Property property) {
+        return accepts != null && accepts.test(property);
+    }
+
+    /**
+     * @param property      The property the statement works on, ignored by operations which are not per-property.
+     * @return              The SQL of the statement.
+     */
+    public String sql(Property property) {
+        return perProperty() ? template.formatted(property.value) : template;
+    }
+
+    private final String template;
+    private final Predicate<Property> accepts;
+}
@@ -0,0 +1,88 @@
+package com.loginsys.database.pool;
+
+import com.loginsys.database.property.Property;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * The prepared statements of a single connection, compiled once when the connection is opened and reused for its whole life.
+ * Since there are only a handful of operations and properties, the full set is compiled eagerly: after that,
+ * no SQL gets parsed or formatted again on this connection. Read-only connections only compile the queries.
+ * <p>
+ * Statements belong to the cache: callers must close their result sets but never the statements themselves.
+ */
+final class StatementCache implements AutoCloseable {
+
+    private final PreparedStatement[][] statements = new PreparedStatement[SqlOperation.values().length][];
+
+    StatementCache(Connection connection, boolean queriesOnly) throws SQLException {
+        try {
+            for (SqlOperation operation : SqlOperation.values()) {
+                if (queriesOnly && !operation.isQuery()) {
+                    continue;
+                }
+
+                if (operation.perProperty()) {
+                    PreparedStatement[] byProperty = new PreparedStatement[Property.values().length];
+                    statements[operation.ordinal()] = byProperty;
+
+                    for (Property property : Property.values()) {
+                        if (operation.accepts(property)) {
+                            byProperty[property.ordinal()] = connection.prepareStatement(operation.sql(property));
+                        }
+                    }
+                }
+
+                else {
+                    statements[operation.ordinal()] = new PreparedStatement[] {
+                            connection.prepareStatement(operation.sql(null))
+                    };
+                }
+            }
+        }
+
+        catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    PreparedStatement get(SqlOperation operation, Property property) {
+        PreparedStatement[] byProperty = statements[operation.ordinal()];
+
+        if (byProperty == null) {
+            throw new IllegalArgumentException("No %s statement on a read-only connection".formatted(operation));
+        }
+
+        PreparedStatement stm = operation.perProperty()
+                ? byProperty[property.ordinal()]
+                : byProperty[0];
+
+        if (stm == null) {
+            throw new IllegalArgumentException("No %s statement for property %s".formatted(operation, property));
+        }
+
+        return stm;
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement[] byProperty : statements) {
+            if (byProperty == null) continue;
+
+            for (PreparedStatement stm : byProperty) {
+                if (stm == null) continue;
+
+                try {
+                    stm.close();
+                }
+
+                catch (SQLException ignored) {
+                    // the connection is being closed anyway
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.loginsys.database.schema;
+
+import java.util.HexFormat;
+
+/**
+ * Converts user ids between their string form and the value stored in the {@code id} and {@code user_id} columns.
+ * <p>
+ * Ids in the canonical, lower-case form of a UUID (what {@code UUID.toString} returns) are stored as a 16-byte BLOB,
+ * 20 bytes smaller than the text in the table and in every index; any other id is stored as text, unchanged.
+ * Decoding a BLOB gives back the exact same string, so the conversion is invisible above the store.
+ * The rule is the one the schema migration applies to existing ids, and both must stay identical.
+ */
+public final class IdCodec {
+
+    private static final HexFormat hex = HexFormat.of();
+
+    private IdCodec() {
+    }
+
+    /**
+     * @param id    The id of a user.
+     * @return      The value to bind: a {@code byte[]} of 16 bytes for UUIDs, the id itself otherwise.
+     */
+    public static Object encode(String id) {
+        if (!isCanonicalUuid(id)) {
+            return id;
+        }
+
+        byte[] bytes = new byte[16];
+
+        for (int i = 0, at = 0; i < 16; i++) {
+            if (at == 8 || at == 13 || at == 18 || at == 23) at++;
+
+            bytes[i] = (byte) (Character.digit(id.charAt(at), 16) << 4 | Character.digit(id.charAt(at + 1), 16));
+            at += 2;
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @param column    The value read from an id column: a {@code byte[]}, a {@code String} or null.
+     * @return          The id in its string form.
+     */
+    public static String decode(Object column) {
+        if (column instanceof byte[] bytes && bytes.length == 16) {
+            String digits = hex.formatHex(bytes);
+
+            return digits.substring(0, 8) + '-' + digits.substring(8, 12) + '-' + digits.substring(12, 16) + '-'
+                    + digits.substring(16, 20) + '-' + digits.substring(20);
+        }
+
+        if (column instanceof byte[] bytes) {
+            throw new IllegalArgumentException("Not a binary id: " + bytes.length + " bytes");
+        }
+
+        return (String) column;
+    }
+
+    /**
+     * 36 characters, dashes at the positions of {@code UUID.toString} and lower-case hex digits everywhere else.
+     */
+    static boolean isCanonicalUuid(String id) {
+        if (id == null || id.length() != 36) return false;
+
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+
+            if (dash ? c != '-' : !(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) return false;
+        }
+
+        return true;
+    }
+}
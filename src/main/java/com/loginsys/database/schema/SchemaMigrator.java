@@ -0,0 +1,177 @@
+package com.loginsys.database.schema;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date. The version of the schema is stored in SQLite's {@code user_version} pragma,
+ * and every migration newer than it is applied, in order, inside its own transaction.
+ * <p>
+ * Migrations are append-only: once released, a migration must never be edited, only followed by a new one.
+ */
+public class SchemaMigrator {
+
+    /**
+     * The migrations, where the migration at index {@code i} brings the schema to version {@code i + 1}.
+     */
+    private static final List<List<String>> migrations = List.of(
+
+            // 1: the Users table, compatible with databases created before the migrator existed
+            List.of(
+                    """
+                    create table if not exists Users (
+                        id text,
+                        email text,
+                        username text,
+                        password text
+                    )
+                    """
+            ),
+
+            // 2: unique indexes, so that lookups never scan the table and duplicates are rejected by the database
+            List.of(
+                    "create unique index if not exists Users_id on Users (id)",
+                    "create unique index if not exists Users_email on Users (email)",
+                    "create unique index if not exists Users_username on Users (username)"
+            ),
+
+            // 3: the Sessions table, so that sessions survive restarts; tokens are only stored hashed
+            List.of(
+                    """
+                    create table Sessions (
+                        token_hash text primary key,
+                        user_id text not null,
+                        created_at integer not null,
+                        expires_at integer not null
+                    ) without rowid
+                    """,
+                    "create index Sessions_user_id on Sessions (user_id)",
+                    "create index Sessions_expires_at on Sessions (expires_at)"
+            ),
+
+            // 4: UUID ids stored as 16-byte blobs (see IdCodec), behind an integer primary key; rows keep their rowid,
+            // so that they keep their insertion order
+            List.of(
+                    """
+                    create table Users_v4 (
+                        row_id integer primary key,
+                        id blob,
+                        email text,
+                        username text,
+                        password text
+                    )
+                    """,
+                    "insert into Users_v4 (row_id, id, email, username, password) "
+                            + "select rowid, " + binaryId("id") + ", email, username, password from Users order by rowid",
+                    "drop table Users",
+                    "alter table Users_v4 rename to Users",
+                    "create unique index Users_id on Users (id)",
+                    "create unique index Users_email on Users (email)",
+                    "create unique index Users_username on Users (username)",
+                    "update Sessions set user_id = " + binaryId("user_id")
+            )
+    );
+
+    /**
+     * Pragmas to run on every new connection.
+     * {@code synchronous = normal} is durable in WAL mode except on power loss, while the cache and memory map sizes
+     * keep the hot pages of the table and its indexes in memory.
+     */
+    public static final List<String> CONNECTION_PRAGMAS = List.of(
+            "pragma synchronous = normal",
+            "pragma cache_size = -16000",
+            "pragma mmap_size = 268435456",
+            "pragma temp_store = memory"
+    );
+
+    /**
+     * Pragmas to run on the connection which writes: those of {@link #CONNECTION_PRAGMAS}, except that
+     * {@code synchronous = full} syncs the WAL at every commit, so that a write reported as committed survives a power
+     * loss too. The setting is per connection, and only matters where transactions are committed.
+     */
+    public static final List<String> WRITER_PRAGMAS = List.of(
+            "pragma synchronous = full",
+            "pragma cache_size = -16000",
+            "pragma mmap_size = 268435456",
+            "pragma temp_store = memory"
+    );
+
+    /**
+     * @return      The schema version this code expects.
+     */
+    public static int latestVersion() {
+        return migrations.size();
+    }
+
+    /**
+     * Switches the database to WAL journaling and applies every pending migration.
+     *
+     * @param connectionString      The JDBC address of the database.
+     * @return                      The schema version after the migration.
+     */
+    public static int migrate(String connectionString) {
+
+        try (Connection connection = DriverManager.getConnection(connectionString);
+             Statement stm = connection.createStatement()) {
+
+            stm.execute("pragma journal_mode = wal");
+
+            int version = currentVersion(stm);
+
+            if (version > latestVersion()) {
+                throw new IllegalStateException(
+                        "The database schema (version %d) is newer than this application (version %d)".formatted(version, latestVersion())
+                );
+            }
+
+            connection.setAutoCommit(false);
+
+            while (version < latestVersion()) {
+                try {
+                    for (String sql : migrations.get(version)) {
+                        stm.execute(sql);
+                    }
+
+                    version++;
+                    stm.execute("pragma user_version = " + version);
+                    connection.commit();
+                }
+
+                catch (SQLException e) {
+                    connection.rollback();
+                    throw new RuntimeException("Schema migration to version " + (version + 1) + " failed", e);
+                }
+            }
+
+            return version;
+        }
+
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The SQL version of {@code IdCodec.encode}: canonical lower-case UUIDs become 16-byte blobs, anything else is kept.
+     *
+     * @param column    The column holding an id.
+     * @return          An expression of the stored value of the id.
+     */
+    private static String binaryId(String column) {
+        String digit = "[0-9a-f]";
+        String uuid = String.join("-", digit.repeat(8), digit.repeat(4), digit.repeat(4), digit.repeat(4), digit.repeat(12));
+
+        return "case when typeof(%1$s) = 'text' and %1$s glob '%2$s' then unhex(replace(%1$s, '-', '')) else %1$s end"
+                .formatted(column, uuid);
+    }
+
+    private static int currentVersion(Statement stm) throws SQLException {
+        try (ResultSet rs = stm.executeQuery("pragma user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.loginsys.database.store;
+
+import java.time.Duration;
+
+/**
+ * The tunables of the group commit of {@code SqliteUserStore}.
+ *
+ * @param enabled       False to run every write in its own transaction, on the caller's thread.
+ * @param maxBatch      The maximum number of writes committed by a single transaction.
+ * @param maxDelay      How long the writer waits for more writes after the first one of a batch;
+ *                      {@code Duration.ZERO} only batches the writes queued while the previous batch was committing.
+ * @param capacity      The maximum number of queued writes; further callers wait for room.
+ */
+public record GroupCommitConfig(boolean enabled, int maxBatch, Duration maxDelay, int capacity) {
+
+    public GroupCommitConfig {
+        if (maxBatch < 1) throw new IllegalArgumentException("Max batch must be at least 1: " + maxBatch);
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        if (maxDelay.isNegative()) throw new IllegalArgumentException("Max delay must not be negative: " + maxDelay);
+    }
+
+    /**
+     * Reads the configuration from the {@code loginsys.groupCommit.*} system properties, falling back to these defaults:
+     * <ul>
+     *     <li>{@code loginsys.groupCommit.enabled} (default: true)</li>
+     *     <li>{@code loginsys.groupCommit.maxBatch} (default: 256 writes)</li>
+     *     <li>{@code loginsys.groupCommit.maxDelayMs} (default: 1)</li>
+     *     <li>{@code loginsys.groupCommit.capacity} (default: 10000 writes)</li>
+     * </ul>
+     *
+     * @return      The resulting configuration.
+     */
+    public static GroupCommitConfig fromSystemProperties() {
+        return new GroupCommitConfig(
+                Boolean.parseBoolean(System.getProperty("loginsys.groupCommit.enabled", "true")),
+                Integer.getInteger("loginsys.groupCommit.maxBatch", 256),
+                Duration.ofMillis(Long.getLong("loginsys.groupCommit.maxDelayMs", 1)),
+                Integer.getInteger("loginsys.groupCommit.capacity", 10_000)
+        );
+    }
+}
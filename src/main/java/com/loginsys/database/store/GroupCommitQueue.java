@@ -0,0 +1,278 @@
+package com.loginsys.database.store;
+
+import com.loginsys.database.pool.ConnectionPool;
+import com.loginsys.database.pool.PooledConnection;
+import com.loginsys.database.pool.SqlOperation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A single writer thread which commits the writes of many callers together, so that a burst of registrations or
+ * profile updates takes SQLite's write lock and syncs the journal once per batch instead of once per write.
+ * <p>
+ * Callers {@link #submit} a write and get a future, completed once the transaction holding it is committed.
+ * A write violating a constraint (e.g. a taken email) is rolled back alone and only its own future fails, while the rest
+ * of the batch is still committed: SQLite already backs out a single failing statement without ending the transaction,
+ * and writes made of several statements run inside their own savepoint. Any other error rolls back the whole
+ * transaction and fails every write of the batch, since SQLite may already have aborted the transaction.
+ */
+class GroupCommitQueue implements AutoCloseable {
+
+    /**
+     * The statements of a write, run on the writer's connection. They must not commit nor roll back.
+     */
+    @FunctionalInterface
+    interface Write<T> {
+        T apply(PooledConnection pooled) throws SQLException;
+    }
+
+    private record Pending<T>(Write<T> write, boolean multiStatement, CompletableFuture<T> future) {
+
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final GroupCommitConfig config;
+    private final Function<SQLException, RuntimeException> translate;
+    private final Predicate<SQLException> isConflict;
+
+    private final BlockingQueue<Pending<?>> queue;
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private volatile int largestBatch = 0;
+
+    /**
+     * Creates the queue and starts its writer thread.
+     *
+     * @param pool          Where the writer borrows a connection for each batch.
+     * @param config        The batch size and delay.
+     * @param translate     Maps the errors of the driver to the exceptions the callers expect.
+     * @param isConflict    True for the errors which only concern the write which raised them (constraint violations).
+     */
+    GroupCommitQueue(ConnectionPool pool, GroupCommitConfig config, Function<SQLException, RuntimeException> translate,
+                     Predicate<SQLException> isConflict) {
+        this.pool = pool;
+        this.config = config;
+        this.translate = translate;
+        this.isConflict = isConflict;
+        this.queue = new LinkedBlockingQueue<>(config.capacity());
+
+        this.writer = new Thread(this::run, "group-commit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a write, waiting for room if the queue is full.
+     *
+     * @param write             The statements to run.
+     * @param multiStatement    True if the write may run more than one statement, so that it needs a savepoint.
+     * @return                  A future completed with the result of the write once committed, or with the exception it raised.
+     * @throws RejectedExecutionException   If the queue is closed.
+     */
+    <T> CompletableFuture<T> submit(Write<T> write, boolean multiStatement) {
+        if (closed) {
+            throw new RejectedExecutionException("The write queue is closed.");
+        }
+
+        Pending<T> pending = new Pending<>(write, multiStatement, new CompletableFuture<>());
+
+        try {
+            queue.put(pending);
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the write queue.");
+        }
+
+        // the writer may have stopped between the check above and the put: then nobody would ever run it
+        if (closed && queue.remove(pending)) {
+            throw new RejectedExecutionException("The write queue is closed.");
+        }
+
+        return pending.future();
+    }
+
+    /**
+     * @return      A snapshot of the queue counters.
+     */
+    GroupCommitStats stats() {
+        return new GroupCommitStats(
+                queue.size(), writes.sum(), batches.sum(), conflicts.sum(), failedBatches.sum(), largestBatch
+        );
+    }
+
+    /**
+     * Stops accepting writes and waits for the writer to commit the queued ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        try {
+            writer.join();
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending<?>> batch = new ArrayList<>(config.maxBatch());
+
+        while (true) {
+            try {
+                Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    if (closed) break;
+                    continue;
+                }
+
+                batch.add(first);
+                collect(batch);
+                commit(batch);
+            }
+
+            catch (InterruptedException e) {
+                // only close() stops the writer, but the writes already taken from the queue would be lost with the batch
+                if (!batch.isEmpty()) {
+                    fail(batch, new RejectedExecutionException("Interrupted before the write was committed."));
+                }
+            }
+
+            finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds queued writes to the batch until it is full or {@code maxDelay} has passed since the first one was taken.
+     */
+    private void collect(List<Pending<?>> batch) throws InterruptedException {
+        int max = config.maxBatch();
+        long deadline = System.nanoTime() + config.maxDelay().toNanos();
+
+        queue.drainTo(batch, max - batch.size());
+
+        while (batch.size() < max && !closed) {
+            Pending<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            if (next == null) break;
+
+            batch.add(next);
+            queue.drainTo(batch, max - batch.size());
+        }
+    }
+
+    private void commit(List<Pending<?>> batch) {
+        Object[] results = new Object[batch.size()];
+        RuntimeException[] errors = new RuntimeException[batch.size()];
+
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.connection();
+            PreparedStatement savepoint = pooled.statement(SqlOperation.SAVEPOINT_WRITE);
+            PreparedStatement release = pooled.statement(SqlOperation.RELEASE_WRITE);
+            PreparedStatement rollbackTo = pooled.statement(SqlOperation.ROLLBACK_TO_WRITE);
+            connection.setAutoCommit(false);
+
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    Pending<?> pending = batch.get(i);
+
+                    if (pending.multiStatement()) {
+                        savepoint.execute();
+                    }
+
+                    try {
+                        results[i] = pending.write().apply(pooled);
+                    }
+
+                    catch (SQLException e) {
+                        if (!isConflict.test(e)) throw e;
+
+                        if (pending.multiStatement()) {
+                            rollbackTo.execute();
+                        }
+
+                        errors[i] = translate.apply(e);
+                    }
+
+                    if (pending.multiStatement()) {
+                        release.execute();
+                    }
+                }
+
+                connection.commit();
+            }
+
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        catch (SQLException e) {
+            fail(batch, translate.apply(e));
+            return;
+        }
+
+        catch (RuntimeException e) {
+            fail(batch, e);
+            return;
+        }
+
+        batches.increment();
+        writes.add(batch.size());
+
+        if (batch.size() > largestBatch) {
+            largestBatch = batch.size();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (errors[i] != null) {
+                conflicts.increment();
+                batch.get(i).future().completeExceptionally(errors[i]);
+            }
+
+            else {
+                batch.get(i).complete(results[i]);
+            }
+        }
+    }
+
+    private void fail(List<Pending<?>> batch, RuntimeException e) {
+        failedBatches.increment();
+
+        for (Pending<?> pending : batch) {
+            pending.future().completeExceptionally(e);
+        }
+    }
+}
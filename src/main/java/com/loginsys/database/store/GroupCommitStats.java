@@ -0,0 +1,28 @@
+package com.loginsys.database.store;
+
+/**
+ * A point-in-time snapshot of the group commit counters of a {@code SqliteUserStore}.
+ *
+ * @param queued            Writes currently waiting for the writer.
+ * @param writes            Writes handled by the committed transactions, conflicts included.
+ * @param batches           Transactions committed.
+ * @param conflicts         Writes rejected alone because of a constraint violation (e.g. a taken email).
+ * @param failedBatches     Transactions rolled back as a whole, failing every write they held.
+ * @param largestBatch      The most writes a single transaction held.
+ */
+public record GroupCommitStats(int queued, long writes, long batches, long conflicts, long failedBatches, int largestBatch) {
+
+    /**
+     * @return      The average number of writes per transaction, 0 if nothing was committed yet.
+     */
+    public double averageBatch() {
+        return batches == 0 ? 0 : (double) writes / batches;
+    }
+
+    @Override
+    public String toString() {
+        return "queued=%d writes=%d batches=%d avgBatch=%.1f largestBatch=%d conflicts=%d failedBatches=%d".formatted(
+                queued, writes, batches, averageBatch(), largestBatch, conflicts, failedBatches
+        );
+    }
+}
@@ -0,0 +1,319 @@
+package com.loginsys.database.store;
+
+import com.loginsys.database.index.CompactUserIndex;
+import com.loginsys.database.index.IndexStats;
+import com.loginsys.database.property.Property;
+import com.loginsys.exceptions.AlreadyTakenUserEmail;
+import com.loginsys.exceptions.AlreadyTakenUserUsername;
+import com.loginsys.management.session.StoredSession;
+import com.loginsys.management.user.UserSnapshot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A {@code UserStore} kept entirely in memory, for tests, benchmarks and ephemeral deployments: nothing survives
+ * the JVM.
+ * <p>
+ * Every user gets a row number, in insertion order, and its row lives in an array chunk at that position; a
+ * {@code CompactUserIndex} resolves ids, emails and usernames to row numbers without keeping a string per user.
+ * Rows of deleted users are left empty and never reused, so a store holds at most {@code Integer.MAX_VALUE}
+ * registrations over its life.
+ * <p>
+ * Reads never lock; writes are serialized, like SQLite's single writer, so that the uniqueness checks and the index
+ * updates of a write are atomic. Rows are immutable and stored before being indexed, and every lookup checks the row
+ * it lands on, so a reader racing with a write sees either the old or the new row, never a mix.
+ */
+public class InMemoryUserStore implements UserStore {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final VarHandle ROWS = MethodHandles.arrayElementVarHandle(UserSnapshot[].class);
+
+    private final CompactUserIndex index;
+    private final CompactUserIndex.Rows holds = this::holds;
+
+    private volatile UserSnapshot[][] chunks = new UserSnapshot[0][];
+    private volatile int nextRow = 0;
+    private volatile int count = 0;
+
+    private final ConcurrentHashMap<String, StoredSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a store indexed according to the {@code loginsys.index.*} system properties.
+     */
+    public InMemoryUserStore() {
+        this(CompactUserIndex.fromSystemProperties());
+    }
+
+    /**
+     * @param index     An empty index, owned by the store from now on.
+     */
+    public InMemoryUserStore(CompactUserIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @return      The size and memory of the index.
+     */
+    public IndexStats indexStats() {
+        return index.stats();
+    }
+
+    @Override
+    public synchronized void insert(UserSnapshot user) throws AlreadyTakenUserEmail, AlreadyTakenUserUsername {
+        if (rowOf(Property.ID, user.id()) != CompactUserIndex.NO_ROW) {
+            throw new RuntimeException("Already taken id: " + user.id());
+        }
+
+        if (rowOf(Property.EMAIL, user.email()) != CompactUserIndex.NO_ROW) {
+            throw new AlreadyTakenUserEmail("This email is already linked with an another account.");
+        }
+
+        if (rowOf(Property.USERNAME, user.username()) != CompactUserIndex.NO_ROW) {
+            throw new AlreadyTakenUserUsername("Already taken username");
+        }
+
+        put(user);
+    }
+
+    @Override
+    public synchronized boolean[] insertIfAbsent(List<UserSnapshot> rows) {
+        boolean[] inserted = new boolean[rows.size()];
+
+        for (int i = 0; i < rows.size(); i++) {
+            UserSnapshot row = rows.get(i);
+
+            if (rowOf(Property.ID, row.id()) == CompactUserIndex.NO_ROW
+                    && rowOf(Property.EMAIL, row.email()) == CompactUserIndex.NO_ROW
+                    && rowOf(Property.USERNAME, row.username()) == CompactUserIndex.NO_ROW) {
+                put(row);
+                inserted[i] = true;
+            }
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void forEach(Consumer<UserSnapshot> action) {
+        int end = nextRow;
+
+        for (int row = 0; row < end; row++) {
+            UserSnapshot snapshot = snapshotAt(row);
+
+            if (snapshot != null) {
+                action.accept(snapshot);
+            }
+        }
+    }
+
+    @Override
+    public UserSnapshot findBy(Property property, String value) {
+        int row = rowOf(property, value);
+
+        if (row == CompactUserIndex.NO_ROW) {
+            return null;
+        }
+
+        // the row may have changed since the index checked it
+        UserSnapshot snapshot = snapshotAt(row);
+        return snapshot != null && snapshot.get(property).equals(value) ? snapshot : null;
+    }
+
+    @Override
+    public synchronized boolean update(String id, Map<Property, String> values) throws AlreadyTakenUserEmail, AlreadyTakenUserUsername {
+        int row = rowOf(Property.ID, id);
+
+        if (row == CompactUserIndex.NO_ROW) {
+            return false;
+        }
+
+        UserSnapshot old = snapshotAt(row);
+        String email = values.getOrDefault(Property.EMAIL, old.email());
+        String username = values.getOrDefault(Property.USERNAME, old.username());
+        String password = values.getOrDefault(Property.PASSWORD, old.password());
+
+        int emailOwner = rowOf(Property.EMAIL, email);
+        int usernameOwner = rowOf(Property.USERNAME, username);
+
+        if (emailOwner != CompactUserIndex.NO_ROW && emailOwner != row) {
+            throw new AlreadyTakenUserEmail("This email is already linked with an another account.");
+        }
+
+        if (usernameOwner != CompactUserIndex.NO_ROW && usernameOwner != row) {
+            throw new AlreadyTakenUserUsername("Already taken username");
+        }
+
+        replace(row, old, new UserSnapshot(id, email, username, password));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean replacePassword(String id, String expected, String replacement) {
+        int row = rowOf(Property.ID, id);
+
+        if (row == CompactUserIndex.NO_ROW || !snapshotAt(row).password().equals(expected)) {
+            return false;
+        }
+
+        UserSnapshot old = snapshotAt(row);
+        replace(row, old, new UserSnapshot(id, old.email(), old.username(), replacement));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String id) {
+        int row = rowOf(Property.ID, id);
+
+        if (row == CompactUserIndex.NO_ROW) {
+            return false;
+        }
+
+        UserSnapshot old = snapshotAt(row);
+        setSnapshot(row, null);
+        unindex(old, row);
+        count--;
+        deleteSessionsOfUser(id);
+        return true;
+    }
+
+    @Override
+    public void insertSession(StoredSession session) {
+        sessions.put(session.tokenHash(), session);
+    }
+
+    @Override
+    public void forEachLiveSession(long now, Consumer<StoredSession> action) {
+        for (StoredSession session : sessions.values()) {
+            if (session.expiresAt() > now) action.accept(session);
+        }
+    }
+
+    @Override
+    public void updateSessionExpiries(List<StoredSession> updated) {
+        for (StoredSession session : updated) {
+            sessions.computeIfPresent(session.tokenHash(), (tokenHash, stored) ->
+                    new StoredSession(tokenHash, stored.userId(), stored.createdAt(), session.expiresAt())
+            );
+        }
+    }
+
+    @Override
+    public void deleteSessions(List<String> tokenHashes) {
+        for (String tokenHash : tokenHashes) {
+            sessions.remove(tokenHash);
+        }
+    }
+
+    @Override
+    public void deleteSessionsOfUser(String userId) {
+        sessions.values().removeIf(session -> session.userId().equals(userId));
+    }
+
+    @Override
+    public int deleteExpiredSessions(long now) {
+        int removed = 0;
+
+        for (StoredSession session : sessions.values()) {
+            if (session.expiresAt() <= now && sessions.remove(session.tokenHash(), session)) removed++;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Drops every user and session.
+     */
+    @Override
+    public synchronized void close() {
+        for (int row = 0; row < nextRow; row++) {
+            UserSnapshot snapshot = snapshotAt(row);
+
+            if (snapshot != null) {
+                unindex(snapshot, row);
+            }
+        }
+
+        chunks = new UserSnapshot[0][];
+        nextRow = 0;
+        count = 0;
+        sessions.clear();
+    }
+
+    private int rowOf(Property property, String value) {
+        return index.find(property, value, holds);
+    }
+
+    private boolean holds(int row, Property property, String value) {
+        UserSnapshot snapshot = snapshotAt(row);
+        return snapshot != null && snapshot.get(property).equals(value);
+    }
+
+    private UserSnapshot snapshotAt(int row) {
+        UserSnapshot[][] current = chunks;
+        int chunk = row >>> CHUNK_BITS;
+        return chunk < current.length ? (UserSnapshot) ROWS.getAcquire(current[chunk], row & (CHUNK_SIZE - 1)) : null;
+    }
+
+    private void setSnapshot(int row, UserSnapshot snapshot) {
+        ROWS.setRelease(chunks[row >>> CHUNK_BITS], row & (CHUNK_SIZE - 1), snapshot);
+    }
+
+    /**
+     * Stores the row before indexing it, so that a reader which finds it in the index also finds the row.
+     */
+    private void put(UserSnapshot user) {
+        int row = nextRow;
+
+        if (row == Integer.MAX_VALUE) {
+            throw new IllegalStateException("No more rows left in the store.");
+        }
+
+        if ((row >>> CHUNK_BITS) == chunks.length) {
+            UserSnapshot[][] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = new UserSnapshot[CHUNK_SIZE];
+            chunks = grown;
+        }
+
+        setSnapshot(row, user);
+        index.add(Property.ID, user.id(), row);
+        index.add(Property.EMAIL, user.email(), row);
+        index.add(Property.USERNAME, user.username(), row);
+        nextRow = row + 1;
+        count++;
+    }
+
+    /**
+     * Indexes the new values before publishing the new row, and unindexes the old ones after.
+     */
+    private void replace(int row, UserSnapshot old, UserSnapshot updated) {
+        boolean emailChanged = !old.email().equals(updated.email());
+        boolean usernameChanged = !old.username().equals(updated.username());
+
+        if (emailChanged) index.add(Property.EMAIL, updated.email(), row);
+        if (usernameChanged) index.add(Property.USERNAME, updated.username(), row);
+
+        setSnapshot(row, updated);
+
+        if (emailChanged) index.remove(Property.EMAIL, old.email(), row);
+        if (usernameChanged) index.remove(Property.USERNAME, old.username(), row);
+    }
+
+    private void unindex(UserSnapshot snapshot, int row) {
+        index.remove(Property.ID, snapshot.id(), row);
+        index.remove(Property.EMAIL, snapshot.email(), row);
+        index.remove(Property.USERNAME, snapshot.username(), row);
+    }
+}
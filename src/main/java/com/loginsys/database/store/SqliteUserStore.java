@@ -0,0 +1,448 @@
+package com.loginsys.database.store;
+
+import com.loginsys.database.pool.ConnectionPool;
+import com.loginsys.database.pool.PoolConfig;
+import com.loginsys.database.pool.PoolMetrics;
+import com.loginsys.database.pool.PooledConnection;
+import com.loginsys.database.pool.SqlOperation;
+import com.loginsys.database.property.Property;
+import com.loginsys.database.schema.IdCodec;
+import com.loginsys.database.schema.SchemaMigrator;
+import com.loginsys.exceptions.AlreadyTakenUserEmail;
+import com.loginsys.exceptions.AlreadyTakenUserUsername;
+import com.loginsys.management.session.StoredSession;
+import com.loginsys.management.user.UserSnapshot;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * The SQLite implementation of {@code UserStore}. The schema is migrated when the store is created, and every operation
+ * runs on a connection borrowed from a {@code ConnectionPool}, with precompiled statements.
+ * Uniqueness is enforced by the unique indexes of the {@code Users} table. Ids are bound and read through
+ * {@code IdCodec}, which stores UUIDs as 16-byte blobs.
+ * <p>
+ * Reads and writes are routed to separate pools. In WAL mode readers never wait for the writer, so lookups run on a
+ * pool of read-only connections, sized after the number of cores; every write runs on a single read-write connection,
+ * since SQLite only lets one connection write at a time anyway: writers queue on that connection rather than on the
+ * database lock, and never hold a connection a reader could use.
+ * <p>
+ * Every write goes through a {@code GroupCommitQueue}, which commits the writes of concurrent callers in a single
+ * transaction; the calls still return only once their own write is committed, or throw its own error. Bulk writes
+ * (imports, session expiries and revocations) are queued as a single multi-statement write rather than borrowing the
+ * writer connection themselves, so they wait their turn instead of holding the connection while queued writes time out.
+ */
+public class SqliteUserStore implements UserStore {
+
+    /**
+     * SQLite's primary result code for constraint violations. The driver may report it extended (e.g. 2067 for UNIQUE),
+     * so only the lowest byte must be compared.
+     */
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    private final ConnectionPool readers;
+    private final ConnectionPool writer;
+    private final GroupCommitQueue writes;
+
+    /**
+     * Migrates the schema of the database, then creates the pools its operations run on.
+     * The schema is migrated before the pools are created, since pooled connections precompile their statements.
+     *
+     * @param connectionString      The JDBC address of the database.
+     * @param config                The tunables of the read-only pool; the writer pool uses the same timeouts.
+     * @param groupCommit           The group commit tunables.
+     */
+    public SqliteUserStore(String connectionString, PoolConfig config, GroupCommitConfig groupCommit) {
+        SchemaMigrator.migrate(connectionString);
+
+        PoolConfig writerConfig = new PoolConfig(1, config.borrowTimeout(), config.idleTimeout(), config.validationInterval());
+
+        this.readers = new ConnectionPool(connectionString, config, SchemaMigrator.CONNECTION_PRAGMAS, true);
+        this.writer = new ConnectionPool(connectionString, writerConfig, SchemaMigrator.WRITER_PRAGMAS);
+        this.writes = groupCommit.enabled()
+                ? new GroupCommitQueue(writer, groupCommit, SqliteUserStore::translate, SqliteUserStore::isConstraintViolation)
+                : null;
+    }
+
+    /**
+     * Creates a store on the database at {@code loginsys.database.url} (default: {@code jdbc:sqlite:users_data.db}),
+     * with a read-only pool configured by the {@code loginsys.pool.*} system properties (see {@link PoolConfig}) and a group
+     * commit configured by the {@code loginsys.groupCommit.*} ones (see {@link GroupCommitConfig}).
+     *
+     * @return      The new store.
+     */
+    public static SqliteUserStore fromSystemProperties() {
+        return new SqliteUserStore(
+                System.getProperty("loginsys.database.url", "jdbc:sqlite:users_data.db"),
+                PoolConfig.fromSystemProperties(),
+                GroupCommitConfig.fromSystemProperties()
+        );
+    }
+
+    /**
+     * @return      A snapshot of the metrics of the read-only pool.
+     */
+    public PoolMetrics poolMetrics() {
+        return readers.metrics();
+    }
+
+    /**
+     * @return      A snapshot of the metrics of the single-connection writer pool.
+     */
+    public PoolMetrics writerPoolMetrics() {
+        return writer.metrics();
+    }
+
+    /**
+     * @return      A snapshot of the group commit counters; null if the group commit is disabled.
+     */
+    public GroupCommitStats groupCommitStats() {
+        return writes != null ? writes.stats() : null;
+    }
+
+    @Override
+    public void insert(UserSnapshot user) throws AlreadyTakenUserEmail, AlreadyTakenUserUsername {
+        write(false, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.INSERT_USER);
+            stm.setObject(1, IdCodec.encode(user.id()));
+            stm.setString(2, user.email());
+            stm.setString(3, user.username());
+            stm.setString(4, user.password());
+            return stm.executeUpdate();
+        });
+    }
+
+    @Override
+    public boolean[] insertIfAbsent(List<UserSnapshot> rows) {
+        boolean[] inserted = new boolean[rows.size()];
+
+        if (rows.isEmpty()) {
+            return inserted;
+        }
+
+        return write(true, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.INSERT_USER_IF_ABSENT);
+
+            for (UserSnapshot row : rows) {
+                stm.setObject(1, IdCodec.encode(row.id()));
+                stm.setString(2, row.email());
+                stm.setString(3, row.username());
+                stm.setString(4, row.password());
+                stm.addBatch();
+            }
+
+            int[] counts = executeBatch(stm);
+
+            for (int i = 0; i < counts.length; i++) {
+                inserted[i] = counts[i] > 0;
+            }
+
+            return inserted;
+        });
+    }
+
+    @Override
+    public long count() {
+        try (PooledConnection pooled = readers.borrow()) {
+            PreparedStatement stm = pooled.statement(SqlOperation.COUNT_USERS);
+
+            try (ResultSet rs = stm.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * A pooled connection is held until the iteration ends.
+     */
+    @Override
+    public void forEach(Consumer<UserSnapshot> action) {
+        try (PooledConnection pooled = readers.borrow()) {
+            PreparedStatement stm = pooled.statement(SqlOperation.SELECT_ALL_USERS);
+
+            try (ResultSet rs = stm.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(snapshotOf(rs));
+                }
+            }
+        }
+
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public UserSnapshot findBy(Property property, String value) {
+        try (PooledConnection pooled = readers.borrow()) {
+            PreparedStatement stm = pooled.statement(SqlOperation.SELECT_USER_BY, property);
+            stm.setObject(1, property == Property.ID ? IdCodec.encode(value) : value);
+
+            try (ResultSet rs = stm.executeQuery()) {
+                return rs.next() ? snapshotOf(rs) : null;
+            }
+        }
+
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean update(String id, Map<Property, String> values) throws AlreadyTakenUserEmail, AlreadyTakenUserUsername {
+        return write(values.size() > 1, pooled -> {
+            boolean found = false;
+
+            for (Map.Entry<Property, String> entry : values.entrySet()) {
+                found |= updateColumn(pooled, id, entry.getKey(), entry.getValue());
+            }
+
+            return found;
+        });
+    }
+
+    @Override
+    public boolean replacePassword(String id, String expected, String replacement) {
+        return write(false, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.REPLACE_PASSWORD_BY_ID);
+            stm.setString(1, replacement);
+            stm.setObject(2, IdCodec.encode(id));
+            stm.setString(3, expected);
+            return stm.executeUpdate() == 1;
+        });
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return write(true, pooled -> {
+            PreparedStatement sessions = pooled.statement(SqlOperation.DELETE_SESSIONS_OF_USER);
+            sessions.setObject(1, IdCodec.encode(id));
+            sessions.executeUpdate();
+
+            PreparedStatement stm = pooled.statement(SqlOperation.DELETE_USER_BY_ID);
+            stm.setObject(1, IdCodec.encode(id));
+            return stm.executeUpdate() > 0;
+        });
+    }
+
+    @Override
+    public void insertSession(StoredSession session) {
+        write(false, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.INSERT_SESSION);
+            stm.setString(1, session.tokenHash());
+            stm.setObject(2, IdCodec.encode(session.userId()));
+            stm.setLong(3, session.createdAt());
+            stm.setLong(4, session.expiresAt());
+            return stm.executeUpdate();
+        });
+    }
+
+    @Override
+    public void forEachLiveSession(long now, Consumer<StoredSession> action) {
+        try (PooledConnection pooled = readers.borrow()) {
+            PreparedStatement stm = pooled.statement(SqlOperation.SELECT_LIVE_SESSIONS);
+            stm.setLong(1, now);
+
+            try (ResultSet rs = stm.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new StoredSession(
+                            rs.getString("token_hash"),
+                            IdCodec.decode(rs.getObject("user_id")),
+                            rs.getLong("created_at"),
+                            rs.getLong("expires_at")
+                    ));
+                }
+            }
+        }
+
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void updateSessionExpiries(List<StoredSession> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        write(true, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.UPDATE_SESSION_EXPIRY);
+
+            for (StoredSession session : sessions) {
+                stm.setLong(1, session.expiresAt());
+                stm.setString(2, session.tokenHash());
+                stm.addBatch();
+            }
+
+            return executeBatch(stm);
+        });
+    }
+
+    @Override
+    public void deleteSessions(List<String> tokenHashes) {
+        if (tokenHashes.isEmpty()) {
+            return;
+        }
+
+        write(true, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.DELETE_SESSION);
+
+            for (String tokenHash : tokenHashes) {
+                stm.setString(1, tokenHash);
+                stm.addBatch();
+            }
+
+            return executeBatch(stm);
+        });
+    }
+
+    @Override
+    public void deleteSessionsOfUser(String userId) {
+        write(false, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.DELETE_SESSIONS_OF_USER);
+            stm.setObject(1, IdCodec.encode(userId));
+            return stm.executeUpdate();
+        });
+    }
+
+    @Override
+    public int deleteExpiredSessions(long now) {
+        return write(false, pooled -> {
+            PreparedStatement stm = pooled.statement(SqlOperation.DELETE_EXPIRED_SESSIONS);
+            stm.setLong(1, now);
+            return stm.executeUpdate();
+        });
+    }
+
+    /**
+     * Commits the queued writes, then closes every connection.
+     */
+    @Override
+    public void close() {
+        if (writes != null) {
+            writes.close();
+        }
+
+        writer.close();
+        readers.close();
+    }
+
+    /**
+     * Runs a write in a transaction: through the group commit if it is enabled, else on the caller's thread.
+     *
+     * @param multiStatement    True if the write may run more than one statement.
+     * @param write             The statements of the write.
+     * @return                  The result of the write, once committed.
+     */
+    private <T> T write(boolean multiStatement, GroupCommitQueue.Write<T> write) {
+        if (writes != null) {
+            CompletableFuture<T> future = writes.submit(write, multiStatement);
+
+            try {
+                return future.join();
+            }
+
+            catch (CompletionException e) {
+                // thrown again on the caller's thread, so that callers catch the same exceptions as without the queue
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try (PooledConnection pooled = writer.borrow()) {
+
+            // a single statement is atomic on its own
+            if (!multiStatement) {
+                return write.apply(pooled);
+            }
+
+            Connection connection = pooled.connection();
+            connection.setAutoCommit(false);
+
+            try {
+                T result = write.apply(pooled);
+                connection.commit();
+                return result;
+            }
+
+            catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        catch (SQLException e) {
+            throw translate(e);
+        }
+    }
+
+    /**
+     * Runs the statements added to a pooled statement, clearing them if it fails so that the next write does not run them.
+     */
+    private static int[] executeBatch(PreparedStatement stm) throws SQLException {
+        try {
+            return stm.executeBatch();
+        }
+
+        catch (SQLException e) {
+            stm.clearBatch();
+            throw e;
+        }
+    }
+
+    private static boolean updateColumn(PooledConnection pooled, String id, Property property, String value) throws SQLException {
+        PreparedStatement stm = pooled.statement(SqlOperation.UPDATE_BY_ID, property);
+        stm.setString(1, value);
+        stm.setObject(2, IdCodec.encode(id));
+        return stm.executeUpdate() > 0;
+    }
+
+    private static UserSnapshot snapshotOf(ResultSet rs) throws SQLException {
+        return new UserSnapshot(
+                IdCodec.decode(rs.getObject(Property.ID.value)),
+                rs.getString(Property.EMAIL.value),
+                rs.getString(Property.USERNAME.value),
+                rs.getString(Property.PASSWORD.value)
+        );
+    }
+
+    /**
+     * Maps an {@code SQLException} to the exception the callers expect: unique constraint violations on the email or
+     * the username become {@code AlreadyTakenUserEmail} and {@code AlreadyTakenUserUsername}, everything else is wrapped
+     * in a {@code RuntimeException}.
+     *
+     * @param e     The exception thrown by the driver.
+     * @return      The exception to throw.
+     */
+    private static RuntimeException translate(SQLException e) {
+        if (isConstraintViolation(e) && e.getMessage() != null) {
+            if (e.getMessage().contains("Users." + Property.EMAIL.value)) {
+                return new AlreadyTakenUserEmail("This email is already linked with an another account.");
+            }
+
+            if (e.getMessage().contains("Users." + Property.USERNAME.value)) {
+                return new AlreadyTakenUserUsername("Already taken username");
+            }
+        }
+
+        return new RuntimeException(e);
+    }
+
+    private static boolean isConstraintViolation(SQLException e) {
+        return (e.getErrorCode() & 0xff) == SQLITE_CONSTRAINT;
+    }
+}
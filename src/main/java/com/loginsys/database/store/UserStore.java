@@ -0,0 +1,125 @@
+package com.loginsys.database.store;
+
+import com.loginsys.database.property.Property;
+import com.loginsys.exceptions.AlreadyTakenUserEmail;
+import com.loginsys.exceptions.AlreadyTakenUserUsername;
+import com.loginsys.management.session.StoredSession;
+import com.loginsys.management.user.UserSnapshot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Where users and sessions are stored. {@code DatabaseManager} is the facade the rest of the application goes through:
+ * it checks the arguments and adds the cache and the identity filter on top of the selected store, so implementations
+ * only have to store rows and enforce the uniqueness of ids, emails and usernames.
+ * <p>
+ * Implementations must be thread-safe, and every method must be atomic: a reader never sees half of a write.
+ */
+public interface UserStore extends AutoCloseable {
+
+    /**
+     * @param user      The user to insert; the password must already be hashed.
+     * @throws AlreadyTakenUserEmail        If another user already has the email.
+     * @throws AlreadyTakenUserUsername     If another user already has the username.
+     */
+    void insert(UserSnapshot user) throws AlreadyTakenUserEmail, AlreadyTakenUserUsername;
+
+    /**
+     * Inserts many users at once, skipping those whose id, email or username is already taken (by an existing user
+     * or by a previous row of the same list).
+     *
+     * @param rows      The users to insert; passwords must already be hashed.
+     * @return          For each row, in order, true if it was inserted and false if it was skipped.
+     */
+    boolean[] insertIfAbsent(List<UserSnapshot> rows);
+
+    /**
+     * @return      The number of users.
+     */
+    long count();
+
+    /**
+     * Streams every user, in insertion order, without loading them all in memory.
+     *
+     * @param action    Called once for each user.
+     */
+    void forEach(Consumer<UserSnapshot> action);
+
+    /**
+     * @param property      A searchable property.
+     * @param value         The value to search.
+     * @return              The user having that value; null if none has it.
+     */
+    UserSnapshot findBy(Property property, String value);
+
+    /**
+     * Changes several editable properties of a user at once: either every value is stored, or none is.
+     *
+     * @param id            The user's id.
+     * @param values        The new value of each property.
+     * @return              True if the user exists.
+     * @throws AlreadyTakenUserEmail        If another user already has the new email.
+     * @throws AlreadyTakenUserUsername     If another user already has the new username.
+     */
+    boolean update(String id, Map<Property, String> values) throws AlreadyTakenUserEmail, AlreadyTakenUserUsername;
+
+    /**
+     * Replaces the password of a user only if it still has the expected value.
+     *
+     * @param id            The user's id.
+     * @param expected      The password value the user must still have.
+     * @param replacement   The new password value.
+     * @return              True if the password was replaced.
+     */
+    boolean replacePassword(String id, String expected, String replacement);
+
+    /**
+     * Removes a user together with their sessions, atomically: no session survives its user.
+     *
+     * @param id    The user's id.
+     * @return      True if the user existed.
+     */
+    boolean delete(String id);
+
+    /**
+     * @param session   The session to persist.
+     */
+    void insertSession(StoredSession session);
+
+    /**
+     * @param now       The current time, in epoch milliseconds.
+     * @param action    Called once for each session which expires after {@code now}.
+     */
+    void forEachLiveSession(long now, Consumer<StoredSession> action);
+
+    /**
+     * Stores the new expiry of many sessions at once. Unknown sessions are ignored.
+     *
+     * @param sessions      The sessions, with their new {@code expiresAt}.
+     */
+    void updateSessionExpiries(List<StoredSession> sessions);
+
+    /**
+     * @param tokenHashes   The hashes of the tokens of the sessions to remove. Unknown sessions are ignored.
+     */
+    void deleteSessions(List<String> tokenHashes);
+
+    /**
+     * @param userId    The user whose sessions are removed.
+     */
+    void deleteSessionsOfUser(String userId);
+
+    /**
+     * @param now       The current time, in epoch milliseconds.
+     * @return          The number of removed sessions, which expired at or before {@code now}.
+     */
+    int deleteExpiredSessions(long now);
+
+    /**
+     * Releases the resources of the store (e.g. its connections).
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,7 @@
+package com.loginsys.exceptions;
+
+public class ConnectionPoolTimeoutException extends RuntimeException {
+    public ConnectionPoolTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.loginsys.exceptions;
+
+import java.time.Duration;
+
+public class TooManyLoginAttemptsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyLoginAttemptsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return      How long to wait before the next attempt may be let through.
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,349 @@
+package com.loginsys.http;
+
+import com.loginsys.database.DatabaseManager;
+import com.loginsys.database.index.IndexStats;
+import com.loginsys.database.pool.PoolMetrics;
+import com.loginsys.database.property.Property;
+import com.loginsys.database.store.GroupCommitStats;
+import com.loginsys.exceptions.*;
+import com.loginsys.management.AuthenticationService;
+import com.loginsys.management.UsersManager;
+import com.loginsys.management.session.Session;
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A local HTTP/JSON front end of {@code AuthenticationService}, served by the JDK's built-in HTTP server.
+ * <p>
+ * Every request runs on its own virtual thread, so a request waiting for a pooled connection or for the password
+ * hashing pool parks a cheap thread instead of holding a platform thread.
+ * <p>
+ * Endpoints (request and response bodies are flat JSON objects of strings; authenticated endpoints expect an
+ * {@code Authorization: Bearer <token>} header):
+ * <ul>
+ *     <li>{@code POST /register} {@code {"email", "username", "password"}}: 201</li>
+ *     <li>{@code POST /login} {@code {"identity", "password"}}: 200 {@code {"token", "id"}}, 401 on a wrong password
+ *     or an unknown identity alike, 429 with a {@code Retry-After} header when the identity or the client address was
+ *     tried too often</li>
+ *     <li>{@code GET /profile}: 200 {@code {"id", "email", "username"}}</li>
+ *     <li>{@code POST /update} {@code {"property", "value"}}, or {@code {"email", "username", "password"}} (any subset,
+ *     stored in a single transaction): 204</li>
+ *     <li>{@code POST /logout}: 204</li>
+ *     <li>{@code GET /metrics}: 200, a plain text dump of the operation latencies and of the cache, filter, pool,
+ *     group commit and throttle counters, one line each</li>
+ * </ul>
+ * Errors are answered with {@code {"error": "<message>"}} and a 400, 401, 404, 409, 413, 429, 503 or 500 status.
+ * Request bodies larger than {@value #MAX_BODY_BYTES} bytes are refused with a 413, and unexpected failures are only
+ * described in the server log, never to the client.
+ */
+public class HttpApi implements AutoCloseable {
+
+    static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final AuthenticationService authentication;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Creates the server, without starting it.
+     *
+     * @param authentication    The service requests are delegated to.
+     * @param address           The address to listen on.
+     * @throws IOException      If the address cannot be bound.
+     */
+    public HttpApi(AuthenticationService authentication, InetSocketAddress address) throws IOException {
+        this.authentication = authentication;
+        this.server = HttpServer.create(address, 0);
+
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts the server on {@code localhost}. The port is given as first argument (default: 8080).
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+
+        HttpApi api = new HttpApi(new AuthenticationService(), new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        api.start();
+
+        System.out.println("Login API listening on " + api.address());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return      The address the server is bound to.
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for the running ones.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+
+            try {
+                switch (route) {
+                    case "POST /register" -> register(exchange);
+                    case "POST /login" -> login(exchange);
+                    case "GET /profile" -> profile(exchange);
+                    case "POST /update" -> update(exchange);
+                    case "POST /logout" -> logout(exchange);
+                    case "GET /metrics" -> metrics(exchange);
+                    default -> respond(exchange, 404, Map.of("error", "No such endpoint: " + route));
+                }
+            }
+
+            catch (RuntimeException e) {
+                if (e instanceof TooManyLoginAttemptsException tooMany) {
+                    long seconds = Math.max(1, (tooMany.retryAfter().toMillis() + 999) / 1000);
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+                }
+
+                int status = statusOf(e);
+
+                if (status == 500) {
+                    System.err.println("Request " + route + " failed: " + e);
+                    respond(exchange, status, Map.of("error", "Internal server error."));
+                }
+
+                else {
+                    respond(exchange, status, Map.of("error", String.valueOf(e.getMessage())));
+                }
+            }
+        }
+    }
+
+    private void register(HttpExchange exchange) throws IOException {
+        Map<String, String> body = body(exchange);
+        authentication.register(required(body, "email"), required(body, "username"), required(body, "password"));
+        respond(exchange, 201, Map.of());
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        Map<String, String> body = body(exchange);
+        String source = exchange.getRemoteAddress().getAddress().getHostAddress();
+        Session session;
+
+        try {
+            session = authentication.login(required(body, "identity"), required(body, "password"), source);
+        }
+
+        catch (NonexistentUserException e) {
+            // answered like a wrong password, so that the API never tells which identities are registered
+            session = null;
+        }
+
+        if (session == null) {
+            respond(exchange, 401, Map.of("error", "Wrong identity or password."));
+        }
+
+        else {
+            respond(exchange, 200, Map.of("token", session.token(), "id", session.user().id()));
+        }
+    }
+
+    private void profile(HttpExchange exchange) throws IOException {
+        UserSnapshot profile = authentication.profile(token(exchange));
+        respond(exchange, 200, Map.of("id", profile.id(), "email", profile.email(), "username", profile.username()));
+    }
+
+    private void update(HttpExchange exchange) throws IOException {
+        String token = token(exchange);
+        Map<String, String> body = body(exchange);
+
+        if (body.containsKey("property")) {
+            authentication.update(token, property(required(body, "property")), required(body, "value"));
+        }
+
+        else {
+            Map<Property, String> values = new EnumMap<>(Property.class);
+            body.forEach((name, value) -> values.put(property(name), value));
+            authentication.update(token, values);
+        }
+
+        respond(exchange, 204, null);
+    }
+
+    private void logout(HttpExchange exchange) throws IOException {
+        authentication.logout(token(exchange));
+        respond(exchange, 204, null);
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        StringBuilder dump = new StringBuilder(DatabaseManager.metrics().dump());
+        dump.append("cache ").append(DatabaseManager.cacheStats()).append('\n');
+        dump.append("filter ").append(DatabaseManager.filterStats()).append('\n');
+
+        PoolMetrics pool = DatabaseManager.poolMetrics();
+
+        if (pool != null) {
+            dump.append("pool ").append(pool).append('\n');
+            dump.append("writerPool ").append(DatabaseManager.writerPoolMetrics()).append('\n');
+        }
+
+        GroupCommitStats groupCommit = DatabaseManager.groupCommitStats();
+
+        if (groupCommit != null) {
+            dump.append("groupCommit ").append(groupCommit).append('\n');
+        }
+
+        IndexStats index = DatabaseManager.indexStats();
+
+        if (index != null) {
+            dump.append("index ").append(index).append('\n');
+        }
+
+        dump.append("throttle ").append(UsersManager.throttleStats()).append('\n');
+        dump.append("audit ").append(DatabaseManager.audit().stats()).append('\n');
+
+        byte[] bytes = dump.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> body(HttpExchange exchange) throws IOException {
+        // refused before reading anything when the client already tells it is too large
+        if (declaredLength(exchange) > MAX_BODY_BYTES) {
+            throw new PayloadTooLargeException("Request body larger than " + MAX_BODY_BYTES + " bytes.");
+        }
+
+        try (InputStream in = exchange.getRequestBody()) {
+            // the declared length may be missing (chunked bodies) or wrong: what is actually read is capped too
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new PayloadTooLargeException("Request body larger than " + MAX_BODY_BYTES + " bytes.");
+            }
+
+            return Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @return      The {@code Content-Length} of the request; -1 if it is missing or malformed.
+     */
+    private static long declaredLength(HttpExchange exchange) {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+
+        try {
+            return length != null ? Long.parseLong(length.trim()) : -1;
+        }
+
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String required(Map<String, String> body, String name) {
+        String value = body.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+
+        return value;
+    }
+
+    private String token(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new UnauthorizedException("Missing bearer token.");
+        }
+
+        String token = authorization.substring("Bearer ".length()).trim();
+
+        if (authentication.session(token) == null) {
+            throw new UnauthorizedException("Invalid or expired session.");
+        }
+
+        return token;
+    }
+
+    private static Property property(String name) {
+        for (Property property : Property.values()) {
+            if (property.value.equals(name)) return property;
+        }
+
+        throw new IllegalArgumentException("No such property: " + name);
+    }
+
+    private static class UnauthorizedException extends RuntimeException {
+        UnauthorizedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class PayloadTooLargeException extends RuntimeException {
+        PayloadTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    private static int statusOf(RuntimeException e) {
+        return switch (e) {
+            case InvalidUserEmailException ignored -> 400;
+            case InvalidUserUsernameException ignored -> 400;
+            case InvalidUserPasswordException ignored -> 400;
+            case EditingNonEditablePropertyException ignored -> 400;
+            case SearchWithNonSearchablePropertyException ignored -> 400;
+            case IllegalArgumentException ignored -> 400;
+            case UnauthorizedException ignored -> 401;
+            case NonexistentUserException ignored -> 404;
+            case AlreadyTakenUserEmail ignored -> 409;
+            case AlreadyTakenUserUsername ignored -> 409;
+            case PayloadTooLargeException ignored -> 413;
+            case TooManyLoginAttemptsException ignored -> 429;
+            case ConnectionPoolTimeoutException ignored -> 503;
+            case RejectedExecutionException ignored -> 503;
+            default -> 500;
+        };
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, String> body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.loginsys.http;
+
+import com.loginsys.util.Json;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A closed-loop load generator for the {@code /login} endpoint of {@code HttpApi}.
+ * <p>
+ * It registers a set of users (already registered ones are reused), then runs {@code concurrency} virtual threads,
+ * each logging in a random user as fast as the server answers, and finally reports the throughput and the latency
+ * percentiles of the successful logins.
+ * <p>
+ * Usage: {@code LoadGenerator [baseUrl] [concurrency] [seconds] [users]},
+ * by default {@code http://localhost:8080 64 30 100}.
+ */
+public class LoadGenerator {
+
+    private static final String PASSWORD = "load-generator-password";
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(5)).build();
+
+            for (int user = 0; user < users; user++) {
+                HttpResponse<String> response = post(client, baseUrl + "/register", Map.of(
+                        "email", "load" + user + "@load.test",
+                        "username", "load" + user,
+                        "password", PASSWORD
+                ));
+
+                if (response.statusCode() != 201 && response.statusCode() != 409) {
+                    throw new IllegalStateException("Cannot register the load users: " + response.body());
+                }
+            }
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+            List<Future<Worker>> workers = new ArrayList<>();
+
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> new Worker().run(client, baseUrl, users, deadline)));
+            }
+
+            long[] latencies = new long[0];
+            long failures = 0;
+
+            for (Future<Worker> future : workers) {
+                Worker worker = future.get();
+                int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + worker.count);
+                System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+                failures += worker.failures;
+            }
+
+            Arrays.sort(latencies);
+
+            System.out.printf("concurrency=%d duration=%ds logins=%d failures=%d%n", concurrency, seconds, latencies.length, failures);
+            System.out.printf("throughput=%.1f logins/s%n", latencies.length / (double) seconds);
+            System.out.printf("p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    percentile(latencies, 0.50) / 1e6,
+                    percentile(latencies, 0.99) / 1e6,
+                    latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0
+            );
+        }
+    }
+
+    private static class Worker {
+        long[] latencies = new long[1024];
+        int count = 0;
+        long failures = 0;
+
+        Worker run(HttpClient client, String baseUrl, int users, long deadline) throws Exception {
+            while (System.nanoTime() < deadline) {
+                int user = ThreadLocalRandom.current().nextInt(users);
+                long start = System.nanoTime();
+
+                HttpResponse<String> response = post(client, baseUrl + "/login", Map.of("identity", "load" + user, "password", PASSWORD));
+
+                if (response.statusCode() != 200) {
+                    failures++;
+                    continue;
+                }
+
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = System.nanoTime() - start;
+            }
+
+            return this;
+        }
+    }
+
+    private static HttpResponse<String> post(HttpClient client, String url, Map<String, String> body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(body)))
+                .build();
+
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,78 @@
+package com.loginsys.management;
+
+import com.loginsys.database.property.Property;
+import com.loginsys.management.session.Session;
+import com.loginsys.management.user.UserSnapshot;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * A non-blocking facade of {@code AuthenticationService}, meant for callers which must never wait on the database
+ * or on password hashing, such as the JavaFX application thread.
+ * <p>
+ * Every operation runs on a background virtual thread and returns immediately with a {@code CompletableFuture}.
+ * Failures complete the future exceptionally with the same exceptions the synchronous service throws.
+ * Cancelling a future does not undo the operation, it only discards its result.
+ */
+public class AsyncAuthenticationService implements AutoCloseable {
+
+    private final AuthenticationService authentication;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AsyncAuthenticationService(AuthenticationService authentication) {
+        this.authentication = authentication;
+    }
+
+    public CompletableFuture<Void> register(String email, String username, String password) {
+        return run(() -> authentication.register(email, username, password));
+    }
+
+    public CompletableFuture<Session> login(String identity, String secret) {
+        return supply(() -> authentication.login(identity, secret));
+    }
+
+    public CompletableFuture<UserSnapshot> profile(String token) {
+        return supply(() -> authentication.profile(token));
+    }
+
+    public CompletableFuture<Boolean> verifyPassword(String token, String password) {
+        return supply(() -> authentication.verifyPassword(token, password));
+    }
+
+    public CompletableFuture<Void> update(String token, Property property, String value) {
+        return run(() -> authentication.update(token, property, value));
+    }
+
+    public CompletableFuture<Void> update(String token, Map<Property, String> values) {
+        return run(() -> authentication.update(token, values));
+    }
+
+    public CompletableFuture<Void> logout(String token) {
+        return run(() -> authentication.logout(token));
+    }
+
+    public CompletableFuture<Void> deleteAccount(String token) {
+        return run(() -> authentication.deleteAccount(token));
+    }
+
+    /**
+     * Stops accepting operations, waits for the running ones, then closes the wrapped service.
+     */
+    @Override
+    public void close() {
+        executor.close();
+        authentication.close();
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    private CompletableFuture<Void> run(Runnable operation) {
+        return CompletableFuture.runAsync(operation, executor);
+    }
+}
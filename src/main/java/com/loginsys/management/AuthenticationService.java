@@ -0,0 +1,206 @@
+package com.loginsys.management;
+
+import com.loginsys.database.property.Property;
+import com.loginsys.exceptions.NonexistentUserException;
+import com.loginsys.exceptions.TooManyLoginAttemptsException;
+import com.loginsys.management.session.Session;
+import com.loginsys.management.session.SessionStore;
+import com.loginsys.management.user.User;
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.security.PasswordHashing;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The authentication core of the application, independent of any user interface.
+ * <p>
+ * Every caller gets its own {@code Session}, identified by an opaque token, so one instance can serve any number of
+ * concurrent callers. The instance is thread-safe: its own state is the {@code SessionStore}, and the user operations
+ * it relies on ({@code UsersManager}) are static and thread-safe. They are not stateless, though: the login throttle
+ * of {@code UsersManager} is shared by the whole application, so failed logins through one instance count against the
+ * same identities and addresses in every other. Authenticated calls only check their token against the store, never
+ * the credentials.
+ * <p>
+ * Deleting an account drops its sessions from the database together with the user, so they do not outlive it even
+ * after a restart. A process should create a single service: only one persistent {@code SessionStore} can be open at
+ * a time.
+ */
+public class AuthenticationService implements AutoCloseable {
+
+    private final SessionStore sessions;
+
+    /**
+     * Creates a service with a session store configured by the {@code loginsys.session.*} system properties.
+     *
+     * @throws IllegalStateException    If the store is persistent and another service's persistent store is still open.
+     */
+    public AuthenticationService() {
+        this(SessionStore.fromSystemProperties());
+    }
+
+    /**
+     * @param sessions      Where sessions are issued and checked.
+     */
+    public AuthenticationService(SessionStore sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Registers a new user. See {@link UsersManager#register(String, String, String)}.
+     *
+     * @param email         The email.
+     * @param username      The username.
+     * @param password      The password.
+     */
+    public void register(String email, String username, String password) {
+        UsersManager.register(email, username, password);
+    }
+
+    /**
+     * Checks the credentials and, if they are right, opens a new session.
+     *
+     * @param identity      The user's email or username.
+     * @param secret        The password.
+     * @return              The new session; null if the password is wrong.
+     * @throws NonexistentUserException         If no user has the given identity.
+     * @throws TooManyLoginAttemptsException    If the identity is locked out or was tried too often.
+     */
+    public Session login(String identity, String secret) throws NonexistentUserException {
+        return login(identity, secret, null);
+    }
+
+    /**
+     * Same as {@link #login(String, String)}, also limiting the attempts coming from {@code source}.
+     *
+     * @param identity      The user's email or username.
+     * @param secret        The password.
+     * @param source        Where the attempt comes from (e.g. the client's IP address); null if unknown.
+     * @return              The new session; null if the password is wrong.
+     * @throws NonexistentUserException         If no user has the given identity.
+     * @throws TooManyLoginAttemptsException    If the identity is locked out, or the identity or the source was tried too often.
+     */
+    public Session login(String identity, String secret, String source) throws NonexistentUserException {
+        User user = UsersManager.authenticate(identity, secret, source);
+
+        if (user == null) {
+            return null;
+        }
+
+        return sessions.issue(user);
+    }
+
+    /**
+     * Checks a token, pushing back the expiry of its session.
+     *
+     * @param token     A session token.
+     * @return          The session; null if the token is unknown, or the session expired or was closed.
+     */
+    public Session session(String token) {
+        Objects.requireNonNull(token);
+        return sessions.validate(token);
+    }
+
+    /**
+     * @param token     A session token.
+     * @return          The user logged in with the session; null if the token is unknown or the session was closed.
+     */
+    public User currentUser(String token) {
+        Session session = session(token);
+        return session != null ? session.user() : null;
+    }
+
+    /**
+     * Loads the whole profile of the session's user.
+     *
+     * @param token     The session token.
+     * @return          A snapshot of the user's row.
+     * @throws NonexistentUserException     If the session or its user does not exist.
+     */
+    public UserSnapshot profile(String token) throws NonexistentUserException {
+        UserSnapshot profile = requireUser(token).load();
+
+        if (profile == null) {
+            throw new NonexistentUserException("Non registered user: User not found.");
+        }
+
+        return profile;
+    }
+
+    /**
+     * Checks a password against the one of the session's user, e.g. before letting them change it.
+     *
+     * @param token         The session token.
+     * @param password      The password to check.
+     * @return              True if the password is right.
+     * @throws NonexistentUserException     If the session or its user does not exist.
+     */
+    public boolean verifyPassword(String token, String password) throws NonexistentUserException {
+        return PasswordHashing.verify(password, profile(token).password());
+    }
+
+    /**
+     * Validates and changes a property of the session's user. See {@link UsersManager#update(String, Property, String)}.
+     *
+     * @param token         The session token.
+     * @param property      The property to change.
+     * @param value         The new value; passwords are given in plaintext and hashed before being stored.
+     * @throws NonexistentUserException     If the session does not exist.
+     */
+    public void update(String token, Property property, String value) throws NonexistentUserException {
+        UsersManager.update(requireUser(token).id(), property, value);
+    }
+
+    /**
+     * Validates and changes several properties of the session's user in a single transaction.
+     * See {@link UsersManager#update(String, Map)}.
+     *
+     * @param token         The session token.
+     * @param values        The new value of each property to change; passwords are given in plaintext.
+     * @throws NonexistentUserException     If the session does not exist.
+     */
+    public void update(String token, Map<Property, String> values) throws NonexistentUserException {
+        UsersManager.update(requireUser(token).id(), values);
+    }
+
+    /**
+     * Closes a session. Closing an unknown or already closed session does nothing.
+     *
+     * @param token     The session token.
+     */
+    public void logout(String token) {
+        Objects.requireNonNull(token);
+        sessions.revoke(token);
+    }
+
+    /**
+     * Deletes the account of the session's user and closes every session of that user.
+     *
+     * @param token     The session token.
+     * @throws NonexistentUserException     If the session does not exist.
+     */
+    public void deleteAccount(String token) throws NonexistentUserException {
+        User user = requireUser(token);
+
+        UsersManager.delete(user.id());
+        sessions.revokeAll(user);
+    }
+
+    /**
+     * Stops the session sweeper, writing the pending session expiries.
+     */
+    @Override
+    public void close() {
+        sessions.close();
+    }
+
+    private User requireUser(String token) {
+        User user = currentUser(token);
+
+        if (user == null) {
+            throw new NonexistentUserException("No such session.");
+        }
+
+        return user;
+    }
+}
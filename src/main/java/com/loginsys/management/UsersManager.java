@@ -2,55 +2,205 @@ package com.loginsys.management;
 
 import static com.loginsys.database.DatabaseManager.*;
 
+import com.loginsys.audit.AuditEventType;
+import com.loginsys.database.property.Property;
 import com.loginsys.exceptions.*;
+import com.loginsys.management.user.CredentialValidator;
 import com.loginsys.management.user.User;
+import com.loginsys.management.user.UserIds;
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.metrics.Operation;
+import com.loginsys.security.PasswordHashing;
+import com.loginsys.security.throttle.LoginThrottle;
+import com.loginsys.security.throttle.ThrottleStats;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class UsersManager {
 
-    public static User currentlyLoggedInUser = null;
+    /**
+     * Rate limits and lockouts of login attempts, checked before any database lookup.
+     * It can be tuned or disabled through the {@code loginsys.throttle.*} system properties.
+     */
+    private static final LoginThrottle throttle = LoginThrottle.fromSystemProperties();
+
+    /**
+     * Stores the upgraded hashes of passwords, off the hashing pool: its threads must never wait for the database.
+     * A single thread is enough, since writes are serialized by the store anyway; when its queue is full, the upgrade is
+     * skipped and retried at the user's next login.
+     */
+    private static final ExecutorService rehashWriter = new ThreadPoolExecutor(
+            1,
+            1,
+            0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1024),
+            runnable -> {
+                Thread thread = new Thread(runnable, "password-rehash-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    /**
+     * Returns the current counters of the login throttle (rejected attempts, lockouts, tracked keys...).
+     *
+     * @return      A snapshot of the throttle statistics.
+     */
+    public static ThrottleStats throttleStats() {
+        return throttle.stats();
+    }
 
     public static void register(String email, String username, String password) {
-        if (!User.EMAIL_CHECKER.matcher(email).matches())        throw new InvalidUserEmailException("Invalid email.");
-        if (!User.USERNAME_CHECKER.matcher(username).matches())  throw new InvalidUserUsernameException("Invalid username.");
-        if (!User.PASSWORD_CHECKER.matcher(password).matches())  throw new InvalidUserPasswordException("Invalid password.");
-
-        if (retrieveUserByEmail(email) != null)               throw new RuntimeException("This email is already linked with an another account.");
-        if (retrieveUserByUsername(username) != null)         throw new AlreadyTakenUserUsername("Already taken username");
-
-        registerNewUserToDatabase(
-                UUID.randomUUID().toString(),
-                email,
-                username,
-                password
-        );
+        long start = metrics().start();
+        boolean success = false;
+
+        try {
+            if (!CredentialValidator.isValidEmail(email))        throw new InvalidUserEmailException("Invalid email.");
+            if (!CredentialValidator.isValidUsername(username))  throw new InvalidUserUsernameException("Invalid username.");
+            if (!CredentialValidator.isValidPassword(password))  throw new InvalidUserPasswordException("Invalid password.");
+
+            // the unique indexes on email and username make the insert itself the availability check,
+            // see DatabaseManager.registerNewUserToDatabase
+            registerNewUserToDatabase(
+                    UserIds.newId(),
+                    email,
+                    username,
+                    PasswordHashing.hash(password)
+            );
+
+            success = true;
+        }
+
+        finally {
+            metrics().record(Operation.REGISTER, start, success, null);
+        }
     }
 
-    public static User authByEmailAndPassword(String email, String password) {
-        Objects.requireNonNull(email);
-        Objects.requireNonNull(password);
+    /**
+     * Checks a pair of credentials with a single database lookup, fetching the user's id and password together.
+     * Whether {@code identity} is an email or a username is decided once, through {@code CredentialValidator.isValidEmail}
+     * and {@code CredentialValidator.isValidUsername}.
+     *
+     * @param identity  The user's email or username.
+     * @param secret    The password.
+     * @return          The authenticated user; null if the password is wrong.
+     * @throws NonexistentUserException     If the identity is neither a valid email nor a valid username, or no user has it.
+     * @throws TooManyLoginAttemptsException    If the identity is locked out or was tried too often.
+     */
+    public static User authenticate(String identity, String secret) throws NonexistentUserException {
+        return authenticate(identity, secret, null);
+    }
 
-        User user = retrieveUserByEmail(email);
+    /**
+     * Same as {@link #authenticate(String, String)}, also limiting the attempts coming from {@code source}.
+     *
+     * @param identity  The user's email or username.
+     * @param secret    The password.
+     * @param source    Where the attempt comes from (e.g. the client's IP address); null if unknown.
+     * @return          The authenticated user; null if the password is wrong.
+     * @throws NonexistentUserException         If the identity is neither a valid email nor a valid username, or no user has it.
+     * @throws TooManyLoginAttemptsException    If the identity is locked out, or the identity or the source was tried too often.
+     */
+    public static User authenticate(String identity, String secret, String source) throws NonexistentUserException {
+        Objects.requireNonNull(identity);
+        Objects.requireNonNull(secret);
 
-        if (user != null) {
-            return (user.getPassword().equals(password)) ? user : null;
+        if (CredentialValidator.isValidEmail(identity)) {
+            return authenticate(Property.EMAIL, identity, secret, source);
+        }
+
+        else if (CredentialValidator.isValidUsername(identity)) {
+            return authenticate(Property.USERNAME, identity, secret, source);
         }
 
         else {
-            throw new NonexistentUserException("Non registered email: User not found.");
+            throw new NonexistentUserException("Invalid credentials");
         }
     }
 
+    public static User authByEmailAndPassword(String email, String password) {
+        Objects.requireNonNull(email);
+        Objects.requireNonNull(password);
+
+        return authenticate(Property.EMAIL, email, password, null);
+    }
+
     public static User authByUsernameAndPassword(String username, String password) {
         Objects.requireNonNull(username);
         Objects.requireNonNull(password);
 
-        User user = retrieveUserByUsername(username);
+        return authenticate(Property.USERNAME, username, password, null);
+    }
+
+    private static User authenticate(Property identityType, String identity, String secret, String source) {
+        long start = metrics().start();
+        User user = null;
+
+        try {
+            user = verify(identityType, identity, secret, source);
+            return user;
+        }
+
+        finally {
+            // wrong passwords, unknown identities and throttled attempts all count as failures
+            metrics().record(Operation.AUTHENTICATE, start, user != null, identityType);
+        }
+    }
+
+    private static User verify(Property identityType, String identity, String secret, String source) {
+        try {
+            throttle.acquire(identity, source);
+        }
+
+        catch (TooManyLoginAttemptsException e) {
+            audit().record(AuditEventType.LOGIN_THROTTLED, null, identity, source);
+            throw e;
+        }
+
+        UserSnapshot user = loadUserBy(identityType, identity);
 
         if (user != null) {
-            return (user.getPassword().equals(password)) ? user : null;
+            if (!PasswordHashing.verify(secret, user.password())) {
+                throttle.recordFailure(identity);
+                audit().record(AuditEventType.LOGIN_FAILURE, user.id(), identity, source);
+                return null;
+            }
+
+            throttle.recordSuccess(identity, source);
+            audit().record(AuditEventType.LOGIN_SUCCESS, user.id(), identity, source);
+
+            if (PasswordHashing.needsRehash(user.password())) {
+                // upgrade plaintext or outdated hashes in the background, without slowing down the login
+                try {
+                    PasswordHashing.hashAsync(secret)
+                            .thenAcceptAsync(rehashed -> replacePasswordByUserId(user.id(), user.password(), rehashed), rehashWriter)
+                            .whenComplete((ignored, e) -> reportRehashFailure(user.id(), e));
+                }
+
+                catch (RejectedExecutionException e) {
+                    // the hashing pool is saturated: the login still succeeded, the rehash is retried at the next one
+                }
+            }
+
+            return user.user();
+        }
+
+        // unknown identities cost a full verification and count as failures too, so that probing them takes as long,
+        // and is throttled as much, as guessing passwords
+        PasswordHashing.verify(secret, UnknownUser.PASSWORD);
+        throttle.recordFailure(identity);
+        audit().record(AuditEventType.LOGIN_FAILURE, null, identity, source);
+
+        if (identityType == Property.EMAIL) {
+            throw new NonexistentUserException("Non registered email: User not found.");
         }
 
         else {
@@ -58,8 +208,69 @@ public class UsersManager {
         }
     }
 
+    public static void update(String id, Property property, String value) {
+        Objects.requireNonNull(property);
+        Objects.requireNonNull(value);
+
+        update(id, Map.of(property, value));
+    }
+
+    /**
+     * Validates and stores several properties of a user in a single transaction: if any value is invalid or already
+     * taken, nothing is changed. Passwords are given in plaintext and hashed before being stored.
+     *
+     * @param id        The user's id.
+     * @param values    The new value of each property to change.
+     */
+    public static void update(String id, Map<Property, String> values) {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(values);
+
+        Map<Property, String> validated = new EnumMap<>(Property.class);
+
+        values.forEach((property, value) -> {
+            Objects.requireNonNull(value);
+
+            switch (property) {
+                case EMAIL -> {
+                    if (!CredentialValidator.isValidEmail(value))        throw new InvalidUserEmailException("Invalid email.");
+                }
+                case USERNAME -> {
+                    if (!CredentialValidator.isValidUsername(value))     throw new InvalidUserUsernameException("Invalid username.");
+                }
+                case PASSWORD -> {
+                    if (!CredentialValidator.isValidPassword(value))     throw new InvalidUserPasswordException("Invalid password.");
+                }
+                case ID -> throw new EditingNonEditablePropertyException("Trying to edit a non-editable property: " + property.value);
+            }
+
+            validated.put(property, value);
+        });
+
+        // hashed only once every value is known to be valid
+        validated.computeIfPresent(Property.PASSWORD, (property, password) -> PasswordHashing.hash(password));
+
+        updatePropertiesByUserId(id, validated);
+    }
+
     public static void delete(String id) {
         deleteRegisteredUserFromDatabase(id);
     }
 
+    private static void reportRehashFailure(String id, Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+
+        // a saturated pool or writer only postpones the upgrade to the next login
+        if (cause != null && !(cause instanceof RejectedExecutionException)) {
+            System.err.println("Cannot upgrade the password hash of user " + id + ": " + cause);
+        }
+    }
+
+    /**
+     * The hash logins with an unknown identity are verified against, computed with the current parameters on first use.
+     */
+    private static final class UnknownUser {
+        static final String PASSWORD = PasswordHashing.hash(UserIds.newId());
+    }
+
 }
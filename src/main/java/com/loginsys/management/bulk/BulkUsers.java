@@ -0,0 +1,35 @@
+package com.loginsys.management.bulk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Command line entry point of the bulk tools:
+ * <pre>
+ *     BulkUsers import users.csv [rejects.csv] [chunkSize]
+ *     BulkUsers export users.jsonl
+ * </pre>
+ * The format of each file (CSV or JSON Lines) is deduced from its extension.
+ */
+public class BulkUsers {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("import")) {
+            Path input = Path.of(args[1]);
+            Path rejects = args.length > 2 ? Path.of(args[2]) : Path.of(args[1] + ".rejects.csv");
+            int chunkSize = args.length > 3 ? Integer.parseInt(args[3]) : UserImporter.DEFAULT_CHUNK_SIZE;
+
+            System.out.println(new UserImporter(chunkSize).importUsers(input, rejects));
+        }
+
+        else if (args.length == 2 && args[0].equals("export")) {
+            System.out.println("exported=" + new UserExporter().exportUsers(Path.of(args[1])));
+        }
+
+        else {
+            System.err.println("Usage: BulkUsers import <users.csv|users.jsonl> [rejects.csv] [chunkSize]");
+            System.err.println("       BulkUsers export <users.csv|users.jsonl>");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.loginsys.management.bulk;
+
+/**
+ * The outcome of a bulk import.
+ *
+ * @param read          Records read from the input file.
+ * @param imported      Users inserted.
+ * @param invalid       Records rejected because malformed or failing validation.
+ * @param duplicates    Records rejected because their email or username was already taken.
+ * @param elapsedNanos  Duration of the import.
+ */
+public record ImportReport(long read, long imported, long invalid, long duplicates, long elapsedNanos) {
+
+    @Override
+    public String toString() {
+        return "read=%d imported=%d invalid=%d duplicates=%d in %.1fs (%.0f users/s)".formatted(
+                read, imported, invalid, duplicates, elapsedNanos / 1e9, imported / Math.max(elapsedNanos / 1e9, 1e-9)
+        );
+    }
+}
@@ -0,0 +1,54 @@
+package com.loginsys.management.bulk;
+
+import com.loginsys.database.DatabaseManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams every user of the database to a CSV or JSON Lines file, in constant memory.
+ * Passwords are exported as stored (hashed), so an export can be imported back by {@code UserImporter} as it is.
+ */
+public class UserExporter {
+
+    /**
+     * Exports every user to a file, whose format is deduced from its extension.
+     *
+     * @param output        The CSV or JSON Lines file to write.
+     * @return              The number of exported users.
+     * @throws IOException  If the file cannot be written.
+     */
+    public long exportUsers(Path output) throws IOException {
+        UserFileFormat format = UserFileFormat.of(output);
+        long[] exported = {0};
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (format.header() != null) {
+                writer.write(format.header());
+                writer.newLine();
+            }
+
+            DatabaseManager.forEachUser(user -> {
+                try {
+                    writer.write(format.write(user));
+                    writer.newLine();
+                    exported[0]++;
+                }
+
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return exported[0];
+    }
+}
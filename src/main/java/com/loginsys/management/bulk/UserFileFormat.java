@@ -0,0 +1,156 @@
+package com.loginsys.management.bulk;
+
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.util.Json;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The file formats users can be imported from and exported to. Both hold one user per line, with the
+ * {@code email}, {@code username} and {@code password} fields.
+ */
+public enum UserFileFormat {
+
+    /**
+     * Comma-separated values with an {@code email,username,password} header. Fields containing commas or quotes are
+     * quoted, with inner quotes doubled.
+     */
+    CSV {
+        @Override
+        public String header() {
+            return String.join(",", FIELDS);
+        }
+
+        @Override
+        public Map<String, String> parse(String line) {
+            List<String> values = splitCsv(line);
+
+            if (values.size() != FIELDS.size()) {
+                throw new IllegalArgumentException("Expected %d fields, found %d".formatted(FIELDS.size(), values.size()));
+            }
+
+            Map<String, String> record = new LinkedHashMap<>();
+
+            for (int i = 0; i < FIELDS.size(); i++) {
+                record.put(FIELDS.get(i), values.get(i));
+            }
+
+            return record;
+        }
+
+        @Override
+        public String write(UserSnapshot user) {
+            return quoteCsv(user.email()) + ',' + quoteCsv(user.username()) + ',' + quoteCsv(user.password());
+        }
+    },
+
+    /**
+     * JSON Lines: one {@code {"email": ..., "username": ..., "password": ...}} object per line, without header.
+     */
+    JSONL {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        public Map<String, String> parse(String line) {
+            return Json.parse(line);
+        }
+
+        @Override
+        public String write(UserSnapshot user) {
+            Map<String, String> record = new LinkedHashMap<>();
+            record.put("email", user.email());
+            record.put("username", user.username());
+            record.put("password", user.password());
+            return Json.write(record);
+        }
+    };
+
+    static final List<String> FIELDS = List.of("email", "username", "password");
+
+    /**
+     * @return      The first line of a file in this format; null if the format has no header.
+     */
+    public abstract String header();
+
+    /**
+     * @param line      A line of a file in this format.
+     * @return          Its fields by name.
+     * @throws IllegalArgumentException     If the line is malformed.
+     */
+    public abstract Map<String, String> parse(String line) throws IllegalArgumentException;
+
+    /**
+     * @param user      The user to write.
+     * @return          The line representing the user, without line terminator.
+     */
+    public abstract String write(UserSnapshot user);
+
+    /**
+     * @param file      A file name ending with {@code .csv} or {@code .jsonl}.
+     * @return          The format matching the file extension.
+     */
+    public static UserFileFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+
+        if (name.endsWith(".csv")) return CSV;
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) return JSONL;
+
+        throw new IllegalArgumentException("Unknown user file format (expected .csv or .jsonl): " + file);
+    }
+
+    static String quoteCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            }
+
+            else if (c == '"' && value.isEmpty()) {
+                quoted = true;
+            }
+
+            else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+
+            else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+
+        values.add(value.toString());
+        return values;
+    }
+}
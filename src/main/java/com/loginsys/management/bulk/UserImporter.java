@@ -0,0 +1,177 @@
+package com.loginsys.management.bulk;
+
+import com.loginsys.database.DatabaseManager;
+import com.loginsys.management.user.CredentialValidator;
+import com.loginsys.management.user.UserIds;
+import com.loginsys.management.user.UserSnapshot;
+import com.loginsys.security.PasswordHashing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams users from a CSV or JSON Lines file into the database.
+ * <p>
+ * The file is read in chunks of {@code chunkSize} records, so memory does not grow with the file size.
+ * Each chunk is validated (and its plaintext passwords hashed) in parallel, then inserted with a single JDBC batch
+ * in a single transaction. Records which are malformed, invalid or already taken are reported, with the reason,
+ * in a rejects file instead of stopping the import. The rejects file only repeats their email and username, never
+ * the raw record: it would otherwise keep a copy of plaintext passwords.
+ * <p>
+ * Passwords which already are hashes (e.g. exported by {@code UserExporter}) are imported as they are; plaintext
+ * ones are validated with {@code CredentialValidator.isValidPassword} and hashed, which dominates the import time.
+ */
+public class UserImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final int chunkSize;
+
+    public UserImporter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize     Records validated and inserted per transaction.
+     */
+    public UserImporter(int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    /**
+     * @param record        The parsed fields; null if the line is malformed.
+     */
+    private record Checked(Line line, Map<String, String> record, UserSnapshot user, String rejection) {
+    }
+
+    /**
+     * Imports every record of a file, whose format is deduced from its extension.
+     *
+     * @param input         The CSV or JSON Lines file to import.
+     * @param rejects       The CSV file where rejected records are listed, as {@code line,reason,email,username}.
+     * @return              What was imported and rejected.
+     * @throws IOException  If a file cannot be read or written.
+     */
+    public ImportReport importUsers(Path input, Path rejects) throws IOException {
+        UserFileFormat format = UserFileFormat.of(input);
+        long start = System.nanoTime();
+        long read = 0, imported = 0, invalid = 0, duplicates = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejected = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+
+            rejected.write("line,reason,email,username");
+            rejected.newLine();
+
+            List<Line> chunk = new ArrayList<>(chunkSize);
+            long number = 0;
+            String text;
+
+            while ((text = reader.readLine()) != null) {
+                number++;
+
+                if (text.isBlank() || (number == 1 && text.equalsIgnoreCase(format.header()))) {
+                    continue;
+                }
+
+                chunk.add(new Line(number, text));
+
+                if (chunk.size() == chunkSize) {
+                    long[] counts = importChunk(format, chunk, rejected);
+                    imported += counts[0];
+                    invalid += counts[1];
+                    duplicates += counts[2];
+                    read += chunk.size();
+                    chunk.clear();
+                }
+            }
+
+            long[] counts = importChunk(format, chunk, rejected);
+            imported += counts[0];
+            invalid += counts[1];
+            duplicates += counts[2];
+            read += chunk.size();
+        }
+
+        return new ImportReport(read, imported, invalid, duplicates, System.nanoTime() - start);
+    }
+
+    /**
+     * @return      The number of imported, invalid and duplicate records of the chunk.
+     */
+    private long[] importChunk(UserFileFormat format, List<Line> chunk, BufferedWriter rejected) throws IOException {
+        List<Checked> checked = chunk.parallelStream().map(line -> check(format, line)).toList();
+
+        List<Checked> valid = checked.stream().filter(result -> result.user() != null).toList();
+        boolean[] inserted = DatabaseManager.insertUsersIfAbsent(valid.stream().map(Checked::user).toList());
+
+        long imported = 0, invalid = 0, duplicates = 0;
+
+        for (Checked result : checked) {
+            if (result.rejection() != null) {
+                reject(rejected, result, result.rejection());
+                invalid++;
+            }
+        }
+
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                imported++;
+            } else {
+                reject(rejected, valid.get(i), "Already taken email or username");
+                duplicates++;
+            }
+        }
+
+        return new long[] {imported, invalid, duplicates};
+    }
+
+    private static Checked check(UserFileFormat format, Line line) {
+        Map<String, String> record;
+
+        try {
+            record = format.parse(line.text());
+        }
+
+        catch (IllegalArgumentException e) {
+            return new Checked(line, null, null, "Malformed record: " + e.getMessage());
+        }
+
+        String email = record.get("email");
+        String username = record.get("username");
+        String password = record.get("password");
+
+        if (email == null || !CredentialValidator.isValidEmail(email))            return new Checked(line, record, null, "Invalid email.");
+        if (username == null || !CredentialValidator.isValidUsername(username))   return new Checked(line, record, null, "Invalid username.");
+        if (password == null)                                                          return new Checked(line, record, null, "Invalid password.");
+
+        if (PasswordHashing.isHash(password)) {
+            if (!PasswordHashing.isWellFormedHash(password))                       return new Checked(line, record, null, "Invalid password hash.");
+        } else {
+            if (!CredentialValidator.isValidPassword(password))                    return new Checked(line, record, null, "Invalid password.");
+            password = PasswordHashing.hash(password);
+        }
+
+        return new Checked(line, record, new UserSnapshot(UserIds.newId(), email, username, password), null);
+    }
+
+    private static void reject(BufferedWriter rejected, Checked result, String reason) throws IOException {
+        Map<String, String> record = result.record() != null ? result.record() : Map.of();
+
+        rejected.write(result.line().number() + "," + UserFileFormat.quoteCsv(reason)
+                + "," + UserFileFormat.quoteCsv(record.getOrDefault("email", ""))
+                + "," + UserFileFormat.quoteCsv(record.getOrDefault("username", "")));
+        rejected.newLine();
+    }
+}
@@ -0,0 +1,20 @@
+package com.loginsys.management.session;
+
+import com.loginsys.management.user.User;
+
+import java.time.Instant;
+
+/**
+ * A logged-in caller.
+ *
+ * @param token         The opaque token identifying the session; callers pass it back to every authenticated call.
+ * @param user          The logged-in user.
+ * @param createdAt     When the user logged in.
+ */
+public record Session(String token, User user, Instant createdAt) {
+
+    @Override
+    public String toString() {
+        return "Session[user=" + user + ", createdAt=" + createdAt + "]";
+    }
+}
@@ -0,0 +1,366 @@
+package com.loginsys.management.session;
+
+import com.loginsys.database.DatabaseManager;
+import com.loginsys.management.user.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Issues session tokens and checks them with a single map lookup, so that authenticated calls never verify
+ * credentials again.
+ * <p>
+ * Tokens are 256 random bits from {@code SecureRandom}. Sessions expire after {@code ttl} without being used: every
+ * successful {@link #validate(String)} pushes the expiry back. When the store is persistent, sessions are also kept in
+ * the {@code Sessions} table, keyed by a SHA-256 of the token, and loaded back when the store is created:
+ * <ul>
+ *     <li>new and revoked sessions are written right away;</li>
+ *     <li>pushed back expiries are only marked dirty, once they moved by a tenth of the ttl, and written in batches
+ *     by the sweeper, so that validating a token never writes to the database.</li>
+ * </ul>
+ * A background sweeper periodically writes the dirty expiries and drops expired sessions, examining at most
+ * {@code sweepBatch} sessions per run wherever the previous run stopped, so a run costs the same however many sessions
+ * are open.
+ * <p>
+ * A persistent store owns the {@code Sessions} table: it loads every session into memory and sweeps the table, and the
+ * sessions it revokes are only dropped from its own map. Only one persistent store can therefore be open at a time in a
+ * process; creating another before closing the first throws an {@code IllegalStateException}, so share a single
+ * instance (and a single {@code AuthenticationService}) across the application.
+ */
+public class SessionStore implements AutoCloseable {
+
+    private static final class Entry {
+        final String tokenHash;
+        final User user;
+        final Instant createdAt;
+        volatile long expiresAt;
+        volatile long persistedExpiresAt;
+
+        Entry(String tokenHash, User user, Instant createdAt, long expiresAt) {
+            this.tokenHash = tokenHash;
+            this.user = user;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+            this.persistedExpiresAt = expiresAt;
+        }
+    }
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * Whether a persistent store is open in this process.
+     */
+    private static final AtomicBoolean persistentOpen = new AtomicBoolean();
+
+    private final long ttlMillis;
+    private final boolean persistent;
+    private final int sweepBatch;
+
+    private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final Set<Entry> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sweeper;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Where the sweeper stopped; only used by the sweeper thread.
+     */
+    private Iterator<Entry> cursor;
+
+    /**
+     * Creates the store and, if it is persistent, loads the sessions which did not expire yet.
+     *
+     * @param ttl               How long a session lasts without being used.
+     * @param persistent        True to keep the sessions in the database.
+     * @param sweepInterval     How often expired sessions are dropped and dirty expiries written.
+     * @param sweepBatch        The maximum number of sessions examined, and of expiries written, per sweep.
+     * @throws IllegalStateException    If the store is persistent and another persistent store is open.
+     */
+    public SessionStore(Duration ttl, boolean persistent, Duration sweepInterval, int sweepBatch) {
+        if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("Session ttl must be positive: " + ttl);
+        if (sweepBatch < 1) throw new IllegalArgumentException("Sweep batch must be at least 1: " + sweepBatch);
+
+        this.ttlMillis = ttl.toMillis();
+        this.persistent = persistent;
+        this.sweepBatch = sweepBatch;
+
+        if (persistent) {
+            if (!persistentOpen.compareAndSet(false, true)) {
+                throw new IllegalStateException("A persistent session store is already open.");
+            }
+
+            long now = System.currentTimeMillis();
+
+            try {
+                DatabaseManager.deleteExpiredSessions(now);
+                DatabaseManager.forEachLiveSession(now, stored -> sessions.put(stored.tokenHash(), new Entry(
+                        stored.tokenHash(),
+                        new User(stored.userId()),
+                        Instant.ofEpochMilli(stored.createdAt()),
+                        stored.expiresAt()
+                )));
+            }
+
+            catch (RuntimeException e) {
+                persistentOpen.set(false);
+                throw e;
+            }
+        }
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long period = Math.max(1, sweepInterval.toMillis());
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a store configured by the {@code loginsys.session.ttlMs} (default: 30 minutes),
+     * {@code loginsys.session.persistent} (default: true), {@code loginsys.session.sweepIntervalMs} (default: 30 seconds)
+     * and {@code loginsys.session.sweepBatch} (default: 10000) system properties.
+     *
+     * @return      The new store.
+     */
+    public static SessionStore fromSystemProperties() {
+        return new SessionStore(
+                Duration.ofMillis(Long.getLong("loginsys.session.ttlMs", 1_800_000)),
+                Boolean.parseBoolean(System.getProperty("loginsys.session.persistent", "true")),
+                Duration.ofMillis(Long.getLong("loginsys.session.sweepIntervalMs", 30_000)),
+                Integer.getInteger("loginsys.session.sweepBatch", 10_000)
+        );
+    }
+
+    /**
+     * Opens a new session for an authenticated user.
+     *
+     * @param user      The user.
+     * @return          The session, with its token.
+     */
+    public Session issue(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String tokenHash = hash(token);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(tokenHash, user, Instant.ofEpochMilli(now), now + ttlMillis);
+
+        if (persistent) {
+            DatabaseManager.insertSession(new StoredSession(tokenHash, user.id(), now, entry.expiresAt));
+        }
+
+        sessions.put(tokenHash, entry);
+        return new Session(token, user, entry.createdAt);
+    }
+
+    /**
+     * Checks a token and, if its session is still open, pushes back its expiry.
+     *
+     * @param token     A session token.
+     * @return          The session; null if the token is unknown, or its session expired or was revoked.
+     */
+    public Session validate(String token) {
+        String tokenHash = hash(token);
+        Entry entry = sessions.get(tokenHash);
+
+        if (entry == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (entry.expiresAt <= now) {
+            // its row expired too, since persisted expiries are never later than the real ones
+            sessions.remove(tokenHash, entry);
+            dirty.remove(entry);
+            return null;
+        }
+
+        entry.expiresAt = now + ttlMillis;
+
+        if (persistent && entry.expiresAt - entry.persistedExpiresAt > ttlMillis / 10) {
+            dirty.add(entry);
+        }
+
+        return new Session(token, entry.user, entry.createdAt);
+    }
+
+    /**
+     * Closes a session. Revoking an unknown or already closed session does nothing.
+     *
+     * @param token     The session token.
+     */
+    public void revoke(String token) {
+        String tokenHash = hash(token);
+        Entry entry = sessions.remove(tokenHash);
+
+        if (entry != null) {
+            dirty.remove(entry);
+
+            if (persistent) {
+                DatabaseManager.deleteSessions(List.of(tokenHash));
+            }
+        }
+    }
+
+    /**
+     * Closes every session of a user, e.g. when the account is deleted.
+     *
+     * @param user      The user.
+     */
+    public void revokeAll(User user) {
+        sessions.values().removeIf(entry -> {
+            if (!entry.user.equals(user)) return false;
+
+            dirty.remove(entry);
+            return true;
+        });
+
+        if (persistent) {
+            DatabaseManager.deleteSessionsOfUser(user.id());
+        }
+    }
+
+    /**
+     * @return      The number of open sessions, including expired ones the sweeper did not drop yet.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Stops the sweeper and writes every dirty expiry. A persistent store can be created again once this returns.
+     * Closing more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        sweeper.shutdown();
+
+        try {
+            sweeper.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            while (!dirty.isEmpty()) {
+                flushDirty();
+            }
+        }
+
+        finally {
+            if (persistent) persistentOpen.set(false);
+        }
+    }
+
+    private void sweep() {
+        // an exception must not stop the scheduled runs, so failures are only retried on the next run
+        try {
+            flushDirty();
+            dropExpired();
+        }
+
+        catch (RuntimeException e) {
+            System.err.println("Session sweep failed: " + e);
+        }
+    }
+
+    private void flushDirty() {
+        if (!persistent) {
+            dirty.clear();
+            return;
+        }
+
+        List<Entry> flushed = new ArrayList<>();
+        List<StoredSession> expiries = new ArrayList<>();
+        Iterator<Entry> iterator = dirty.iterator();
+
+        while (iterator.hasNext() && flushed.size() < sweepBatch) {
+            Entry entry = iterator.next();
+            iterator.remove();
+
+            long expiresAt = entry.expiresAt;
+            flushed.add(entry);
+            expiries.add(new StoredSession(entry.tokenHash, entry.user.id(), entry.createdAt.toEpochMilli(), expiresAt));
+        }
+
+        try {
+            DatabaseManager.updateSessionExpiries(expiries);
+        }
+
+        catch (RuntimeException e) {
+            dirty.addAll(flushed);
+            throw e;
+        }
+
+        for (int i = 0; i < flushed.size(); i++) {
+            flushed.get(i).persistedExpiresAt = expiries.get(i).expiresAt();
+        }
+    }
+
+    private void dropExpired() {
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        boolean restarted = false;
+
+        for (int examined = 0; examined < sweepBatch; examined++) {
+            if (cursor == null || !cursor.hasNext()) {
+                // start over at most once per run, so that a small map is not scanned several times
+                if (restarted) break;
+
+                cursor = sessions.values().iterator();
+                restarted = true;
+
+                if (!cursor.hasNext()) break;
+            }
+
+            Entry entry = cursor.next();
+
+            if (entry.expiresAt <= now && sessions.remove(entry.tokenHash, entry)) {
+                dirty.remove(entry);
+                expired.add(entry.tokenHash);
+            }
+        }
+
+        if (persistent) {
+            DatabaseManager.deleteSessions(expired);
+        }
+    }
+
+    /**
+     * @return      The SHA-256 of the token, base64url-encoded. Tokens have 256 bits of entropy, so no salt is needed.
+     */
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        }
+
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
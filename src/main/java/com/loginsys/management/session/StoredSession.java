@@ -0,0 +1,13 @@
+package com.loginsys.management.session;
+
+/**
+ * A session as persisted in the {@code Sessions} table. Only a hash of the token is stored, so that reading the database
+ * is not enough to hijack a session.
+ *
+ * @param tokenHash     The SHA-256 of the token, base64url-encoded.
+ * @param userId        The id of the logged-in user.
+ * @param createdAt     When the user logged in, in epoch milliseconds.
+ * @param expiresAt     When the session expires unless it is used again, in epoch milliseconds.
+ */
+public record StoredSession(String tokenHash, String userId, long createdAt, long expiresAt) {
+}
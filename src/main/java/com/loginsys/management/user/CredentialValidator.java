@@ -0,0 +1,122 @@
+package com.loginsys.management.user;
+
+/**
+ * Hand-written validators for emails, usernames and passwords.
+ * Each one is a single pass over the input, without allocating, and accepts exactly the same strings as the matching
+ * {@code User} pattern does with {@code matcher(input).matches()}:
+ * <ul>
+ *     <li>{@link #isValidEmail(CharSequence)}: {@code User.EMAIL_CHECKER}, {@code [\w.]+@(?:[\w-]+\.)+[\w-]{2,4}}</li>
+ *     <li>{@link #isValidUsername(CharSequence)}: {@code User.USERNAME_CHECKER}, {@code \w{3,25}}</li>
+ *     <li>{@link #isValidPassword(CharSequence)}: {@code User.PASSWORD_CHECKER}, {@code .{15,128}}</li>
+ * </ul>
+ * As in the patterns, {@code \w} is ASCII only ({@code [a-zA-Z_0-9]}) and {@code .} is any code point but a line terminator.
+ */
+public final class CredentialValidator {
+
+    private CredentialValidator() {
+    }
+
+    /**
+     * Equivalent to {@code User.EMAIL_CHECKER.matcher(email).matches()}: a non-empty local part of word characters and
+     * dots, an {@code @}, then at least two dot-separated labels of word characters and hyphens, all non-empty,
+     * the last one being 2 to 4 characters long.
+     *
+     * @param email     The string to check.
+     * @return          True if it is a valid email.
+     */
+    public static boolean isValidEmail(CharSequence email) {
+        int length = email.length();
+        int i = 0;
+
+        // local part: [\w.]+
+        while (i < length && (isWordChar(email.charAt(i)) || email.charAt(i) == '.')) {
+            i++;
+        }
+
+        if (i == 0 || i == length || email.charAt(i) != '@') {
+            return false;
+        }
+
+        // domain: ([\w-]+\.)+[\w-]{2,4}, i.e. non-empty labels separated by dots, at least two of them
+        int labels = 0;
+        int labelLength = 0;
+
+        for (i++; i < length; i++) {
+            char c = email.charAt(i);
+
+            if (c == '.') {
+                if (labelLength == 0) return false;
+                labels++;
+                labelLength = 0;
+            }
+
+            else if (isWordChar(c) || c == '-') {
+                labelLength++;
+            }
+
+            else {
+                return false;
+            }
+        }
+
+        return labels >= 1 && labelLength >= 2 && labelLength <= 4;
+    }
+
+    /**
+     * Equivalent to {@code User.USERNAME_CHECKER.matcher(username).matches()}: 3 to 25 word characters.
+     *
+     * @param username      The string to check.
+     * @return              True if it is a valid username.
+     */
+    public static boolean isValidUsername(CharSequence username) {
+        int length = username.length();
+
+        if (length < 3 || length > 25) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (!isWordChar(username.charAt(i))) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Equivalent to {@code User.PASSWORD_CHECKER.matcher(password).matches()}: 15 to 128 code points, none of them
+     * a line terminator. A surrogate pair counts as one code point, like in the pattern.
+     *
+     * @param password      The string to check.
+     * @return              True if it is a valid password.
+     */
+    public static boolean isValidPassword(CharSequence password) {
+        int length = password.length();
+
+        // quick rejects: a code point takes one or two chars
+        if (length < 15 || length > 256) {
+            return false;
+        }
+
+        int codePoints = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(password.charAt(i + 1))) {
+                i++;
+            }
+
+            codePoints++;
+        }
+
+        return codePoints >= 15 && codePoints <= 128;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -2,28 +2,65 @@ package com.loginsys.management.user;
 
 import static com.loginsys.database.DatabaseManager.*;
 import com.loginsys.database.property.Property;
+import com.loginsys.exceptions.InvalidUserEmailException;
+import com.loginsys.exceptions.InvalidUserPasswordException;
+import com.loginsys.exceptions.InvalidUserUsernameException;
+import com.loginsys.security.PasswordHashing;
 
+import java.util.Map;
 import java.util.regex.Pattern;
 
 public record User(String id) {
+    /*
+     * Reference definitions of valid credentials; validation goes through CredentialValidator, which accepts
+     * exactly the same strings without compiling a matcher for every call.
+     */
     public static final Pattern EMAIL_CHECKER = Pattern.compile("[\\w.]+@(?:[\\w-]+\\.)+[\\w-]{2,4}");
     public static final Pattern USERNAME_CHECKER = Pattern.compile("\\w{3,25}");
     public static final Pattern PASSWORD_CHECKER = Pattern.compile(".{15,128}");
 
+    /**
+     * Loads every property of this user with a single query.
+     * This is the preferred way to read a user: the per-property getters below run a query each time they are called.
+     *
+     * @return      A snapshot of the user's row; null if the user no longer exists.
+     */
+    public UserSnapshot load() {
+        return loadUser(id);
+    }
+
     public String get(Property property) {
         return getPropertyByUserId(id, property);
     }
 
+    /**
+     * Stores a property as given: the password must already be hashed, or an {@code InvalidUserPasswordException} is
+     * thrown (see {@link #setPassword} for the validating variant).
+     *
+     * @param property  The property to change.
+     * @param value     Its new value.
+     */
     public void set(Property property, String value) {
         updatePropertyByUserId(id, property, value);
     }
 
+    /**
+     * Stores several properties at once, in a single transaction: either every value is stored, or none is.
+     * Values are stored as given, so passwords must already be hashed, or an {@code InvalidUserPasswordException} is
+     * thrown (see {@code UsersManager.update} for the validating variant).
+     *
+     * @param values    The new value of each property to change.
+     */
+    public void update(Map<Property, String> values) {
+        updatePropertiesByUserId(id, values);
+    }
+
     public String getEmail() {
         return getPropertyByUserId(id, Property.EMAIL);
     }
 
     public void setEmail(String email) {
-        if (EMAIL_CHECKER.matcher(email).matches()) throw new RuntimeException();
+        if (!CredentialValidator.isValidEmail(email)) throw new InvalidUserEmailException("Invalid email.");
         updateEmailByUserId(id, email);
     }
 
@@ -32,7 +69,7 @@ public record User(String id) {
     }
 
     public void setUsername(String username) {
-        if (USERNAME_CHECKER.matcher(username).matches()) throw new RuntimeException();
+        if (!CredentialValidator.isValidUsername(username)) throw new InvalidUserUsernameException("Invalid username.");
         updateUsernameByUserId(id, username);
     }
 
@@ -41,8 +78,8 @@ public record User(String id) {
     }
 
     public void setPassword(String password) {
-        if (PASSWORD_CHECKER.matcher(password).matches()) throw new RuntimeException();
-        updatePasswordByUserId(id, password);
+        if (!CredentialValidator.isValidPassword(password)) throw new InvalidUserPasswordException("Invalid password.");
+        updatePasswordByUserId(id, PasswordHashing.hash(password));
     }
 
     @Override
@@ -0,0 +1,42 @@
+package com.loginsys.management.user;
+
+import com.loginsys.database.property.Property;
+
+/**
+ * A copy of a whole user row, fetched with a single query.
+ * Unlike {@code User}, whose getters hit the database on every call, reading a snapshot never touches the database:
+ * it is the default way to read a user, while the lazy per-property getters of {@code User} are there for callers
+ * which explicitly want the freshest value of a single column.
+ *
+ * @param id            The user's id.
+ * @param email         The email.
+ * @param username      The username.
+ * @param password      The stored password.
+ */
+public record UserSnapshot(String id, String email, String username, String password) {
+
+    /**
+     * @param property      The property to read.
+     * @return              The value of the property in this snapshot.
+     */
+    public String get(Property property) {
+        return switch (property) {
+            case ID -> id;
+            case EMAIL -> email;
+            case USERNAME -> username;
+            case PASSWORD -> password;
+        };
+    }
+
+    /**
+     * @return      A {@code User} pointing to the same row.
+     */
+    public User user() {
+        return new User(id);
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
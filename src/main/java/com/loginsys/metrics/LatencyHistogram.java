@@ -0,0 +1,124 @@
+package com.loginsys.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, log-linear histogram of durations in nanoseconds.
+ * <p>
+ * Every power of two is split in {@value #SUB_BUCKETS} buckets, so a recorded value is known within 12.5% whatever its
+ * magnitude, with 488 buckets covering any positive {@code long}. Recording is lock-free and allocation-free; the
+ * buckets are striped by thread so that concurrent callers rarely update the same counters.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+    private static final int STRIPES = 4;
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos     The duration of the operation.
+     * @param success   False if the operation failed.
+     */
+    void record(long nanos, boolean success) {
+        nanos = Math.max(0, nanos);
+
+        int stripe = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        counts.getAndIncrement(stripe * BUCKETS + indexOf(nanos));
+        totalNanos.add(nanos);
+
+        if (!success) {
+            failures.increment();
+        }
+
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the histogram. Operations recorded meanwhile may be partially counted.
+     *
+     * @param operation     The operation the histogram measures.
+     * @return              The counts and percentiles of the recorded durations.
+     */
+    OperationStats stats(Operation operation) {
+        long[] merged = new long[BUCKETS];
+        long count = 0;
+
+        for (int i = 0; i < counts.length(); i++) {
+            long value = counts.get(i);
+            merged[i % BUCKETS] += value;
+            count += value;
+        }
+
+        long failed = Math.min(failures.sum(), count);
+        long max = maxNanos.get();
+
+        // a bucket's upper bound can exceed the largest value actually recorded in it
+        return new OperationStats(
+                operation, count - failed, failed, totalNanos.sum(),
+                Math.min(max, percentile(merged, count, 0.50)),
+                Math.min(max, percentile(merged, count, 0.99)),
+                Math.min(max, percentile(merged, count, 0.999)),
+                max
+        );
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+
+        failures.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    private static long percentile(long[] buckets, long count, double percentile) {
+        if (count == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+
+        return highestValueOf(buckets.length - 1);
+    }
+
+    /**
+     * Values below {@value #SUB_BUCKETS} get a bucket each; above, a bucket is made of the position of the highest set
+     * bit and of the {@value #SUB_BITS} bits following it.
+     */
+    static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return      The largest value which falls into the given bucket.
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
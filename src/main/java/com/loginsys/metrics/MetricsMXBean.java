@@ -0,0 +1,25 @@
+package com.loginsys.metrics;
+
+/**
+ * The JMX controls of an {@code OperationMetrics}, registered as {@code com.loginsys:type=Metrics}.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSlowThresholdMillis();
+
+    void setSlowThresholdMillis(long millis);
+
+    /**
+     * @return      One line per operation, as printed by {@code OperationMetrics#dump()}.
+     */
+    String dump();
+
+    /**
+     * Clears every recorded duration and counter.
+     */
+    void reset();
+}
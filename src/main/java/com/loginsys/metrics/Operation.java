@@ -0,0 +1,20 @@
+package com.loginsys.metrics;
+
+/**
+ * The operations timed by {@code OperationMetrics}, named after the method they measure.
+ */
+public enum Operation {
+    RETRIEVE_USER("retrieveUserBy"),
+    GET_PROPERTY("getPropertyByUserId"),
+    UPDATE_PROPERTY("updatePropertyByUserId"),
+    UPDATE_PROPERTIES("updatePropertiesByUserId"),
+    DELETE_USER("deleteRegisteredUserFromDatabase"),
+    REGISTER("register"),
+    AUTHENTICATE("authenticate");
+
+    public final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,22 @@
+package com.loginsys.metrics;
+
+/**
+ * The JMX view of a single operation, registered as {@code com.loginsys:type=Operation,name=<label>}.
+ * Durations are in microseconds.
+ */
+public interface OperationMXBean {
+
+    long getSuccesses();
+
+    long getFailures();
+
+    double getAverageMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
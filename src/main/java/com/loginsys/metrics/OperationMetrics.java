@@ -0,0 +1,240 @@
+package com.loginsys.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Latency histograms and success/failure counters of the user operations, with a log of the slow calls.
+ * <p>
+ * A call is measured with a pair of {@link #start()} and {@link #record} calls:
+ * <pre>{@code
+ * long start = metrics.start();
+ * boolean success = false;
+ *
+ * try {
+ *     ...
+ *     success = true;
+ * }
+ *
+ * finally {
+ *     metrics.record(Operation.REGISTER, start, success, null);
+ * }
+ * }</pre>
+ * While disabled, {@code start()} returns 0 without reading the clock and {@code record} returns right away, so an
+ * instrumented call only pays for a field read and two branches. Calls slower than the threshold are printed to
+ * {@code System.err}, with the detail given to {@code record} but never the values the operation handled.
+ */
+public class OperationMetrics implements MetricsMXBean {
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+
+    private volatile boolean enabled;
+    private volatile long slowThresholdNanos;
+
+    /**
+     * @param enabled           False to skip the measurements until {@link #setEnabled} is called.
+     * @param slowThreshold     Calls lasting longer are logged; {@code Duration.ZERO} logs nothing.
+     */
+    public OperationMetrics(boolean enabled, Duration slowThreshold) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Creates the metrics configured by the {@code loginsys.metrics.enabled} (default: true) and
+     * {@code loginsys.metrics.slowMs} (default: 100 milliseconds, 0 to log nothing) system properties, and registers
+     * them to the platform MBean server unless {@code loginsys.metrics.jmx} is false.
+     *
+     * @return      The new metrics.
+     */
+    public static OperationMetrics fromSystemProperties() {
+        OperationMetrics metrics = new OperationMetrics(
+                Boolean.parseBoolean(System.getProperty("loginsys.metrics.enabled", "true")),
+                Duration.ofMillis(Long.getLong("loginsys.metrics.slowMs", 100))
+        );
+
+        if (Boolean.parseBoolean(System.getProperty("loginsys.metrics.jmx", "true"))) {
+            metrics.registerMBeans();
+        }
+
+        return metrics;
+    }
+
+    /**
+     * @return      The current time to pass to {@link #record}; 0 while disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a call which began at {@code start}. Calls started while disabled are ignored.
+     *
+     * @param operation     The measured operation.
+     * @param start         The value returned by {@link #start()} when the call began.
+     * @param success       False if the call failed.
+     * @param detail        What to print next to the operation if the call was slow (e.g. the property searched); can be null.
+     */
+    public void record(Operation operation, long start, boolean success, Object detail) {
+        if (start == 0) {
+            return;
+        }
+
+        long nanos = System.nanoTime() - start;
+        histograms[operation.ordinal()].record(nanos, success);
+
+        long threshold = slowThresholdNanos;
+
+        if (threshold > 0 && nanos > threshold) {
+            System.err.printf("Slow %s%s: %.1f ms%s%n",
+                    operation.label,
+                    detail != null ? " (" + detail + ")" : "",
+                    nanos / 1e6,
+                    success ? "" : ", failed"
+            );
+        }
+    }
+
+    /**
+     * @param operation     The operation.
+     * @return              A snapshot of its recorded durations.
+     */
+    public OperationStats stats(Operation operation) {
+        return histograms[operation.ordinal()].stats(operation);
+    }
+
+    /**
+     * @return      A snapshot of every operation, in declaration order.
+     */
+    public List<OperationStats> stats() {
+        List<OperationStats> stats = new ArrayList<>(histograms.length);
+
+        for (Operation operation : Operation.values()) {
+            stats.add(stats(operation));
+        }
+
+        return stats;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+
+        for (OperationStats stats : stats()) {
+            dump.append(stats).append('\n');
+        }
+
+        return dump.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getSlowThresholdMillis() {
+        return Duration.ofNanos(slowThresholdNanos).toMillis();
+    }
+
+    @Override
+    public void setSlowThresholdMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Slow threshold must not be negative: " + millis);
+
+        this.slowThresholdNanos = Duration.ofMillis(millis).toNanos();
+    }
+
+    /**
+     * Registers these metrics as {@code com.loginsys:type=Metrics} and each operation as
+     * {@code com.loginsys:type=Operation,name=<label>}. Already registered names are replaced.
+     */
+    public void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            register(server, new ObjectName("com.loginsys:type=Metrics"), this);
+
+            for (Operation operation : Operation.values()) {
+                register(server, new ObjectName("com.loginsys:type=Operation,name=" + operation.label), new OperationView(operation));
+            }
+        }
+
+        catch (JMException e) {
+            // the metrics keep working without JMX
+            System.err.println("Cannot register the metrics MBeans: " + e);
+        }
+    }
+
+    private static void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+
+        server.registerMBean(mbean, name);
+    }
+
+    private class OperationView implements OperationMXBean {
+
+        private final Operation operation;
+
+        OperationView(Operation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public long getSuccesses() {
+            return stats(operation).successes();
+        }
+
+        @Override
+        public long getFailures() {
+            return stats(operation).failures();
+        }
+
+        @Override
+        public double getAverageMicros() {
+            return stats(operation).averageNanos() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return stats(operation).p50Nanos() / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return stats(operation).p99Nanos() / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return stats(operation).p999Nanos() / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return stats(operation).maxNanos() / 1e3;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.loginsys.metrics;
+
+/**
+ * A point-in-time snapshot of the durations recorded for an operation.
+ * Percentiles are upper bounds, within 12.5% of the actual durations.
+ *
+ * @param operation         The measured operation.
+ * @param successes         Calls which completed normally.
+ * @param failures          Calls which failed (an exception, or a rejected login).
+ * @param totalNanos        Time spent in all the calls.
+ * @param p50Nanos          Median duration.
+ * @param p99Nanos          99th percentile of the durations.
+ * @param p999Nanos         99.9th percentile of the durations.
+ * @param maxNanos          Longest call.
+ */
+public record OperationStats(Operation operation, long successes, long failures, long totalNanos,
+                             long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+
+    /**
+     * @return      The number of recorded calls.
+     */
+    public long count() {
+        return successes + failures;
+    }
+
+    /**
+     * @return      The average duration in nanoseconds, 0 if nothing was recorded yet.
+     */
+    public long averageNanos() {
+        return count() == 0 ? 0 : totalNanos / count();
+    }
+
+    @Override
+    public String toString() {
+        return "%s count=%d failures=%d avg=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus".formatted(
+                operation.label, count(), failures, averageNanos() / 1e3,
+                p50Nanos / 1e3, p99Nanos / 1e3, p999Nanos / 1e3, maxNanos / 1e3
+        );
+    }
+}
@@ -0,0 +1,45 @@
+package com.loginsys.security;
+
+/**
+ * A password hashing algorithm.
+ * Hashes are encoded in a PHC-like string, {@code $<id>$<parameters>$<salt>$<hash>}, so that every stored value
+ * carries the parameters it was computed with and can still be verified after the defaults change.
+ */
+public interface PasswordHasher {
+
+    /**
+     * @return      The identifier of the algorithm, as written between the first two {@code $} of its hashes.
+     */
+    String id();
+
+    /**
+     * Hashes a password with a fresh random salt and the current parameters.
+     *
+     * @param password      The password to hash.
+     * @return              The encoded hash.
+     */
+    String hash(CharSequence password);
+
+    /**
+     * Checks a password against an encoded hash produced by this algorithm, in constant time.
+     *
+     * @param password      The password to check.
+     * @param encoded       The stored hash.
+     * @return              True if the password matches.
+     */
+    boolean verify(CharSequence password, String encoded);
+
+    /**
+     * @param encoded       A stored hash produced by this algorithm.
+     * @return              True if it was computed with parameters different from the current ones.
+     */
+    boolean needsRehash(String encoded);
+
+    /**
+     * Checks that a hash claiming to be of this algorithm can be verified at a reasonable cost.
+     *
+     * @param encoded       A hash with the identifier of this algorithm, possibly from an untrusted source.
+     * @return              True if it parses and its parameters are within the supported bounds.
+     */
+    boolean isWellFormed(String encoded);
+}
@@ -0,0 +1,153 @@
+package com.loginsys.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entry point for hashing and verifying passwords.
+ * <p>
+ * Hashing is deliberately expensive, so it runs on a dedicated pool with one thread per core and a bounded queue:
+ * a burst of logins waits in the queue instead of saturating every thread of the application, and once the queue
+ * is full new requests fail fast with a {@code RejectedExecutionException}.
+ * <p>
+ * New hashes always use the current hasher (PBKDF2, tuned through {@code loginsys.hash.iterations}), while stored
+ * hashes are verified with the algorithm and parameters they were created with. Values without a known
+ * {@code $<id>$} prefix are passwords stored in plaintext before hashing was introduced: they are still accepted,
+ * compared in constant time, and always reported as needing a rehash.
+ */
+public class PasswordHashing {
+
+    private static final PasswordHasher current = new Pbkdf2PasswordHasher(
+            Integer.getInteger("loginsys.hash.iterations", 600_000),
+            32
+    );
+
+    /**
+     * Every algorithm stored hashes can be verified with, by id. Older algorithms stay here after the current one changes.
+     */
+    private static final Map<String, PasswordHasher> hashers = Map.of(current.id(), current);
+
+    private static final ThreadPoolExecutor executor;
+
+    static {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger("loginsys.hash.queueSize", threads * 64)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * Hashes a password on the hashing pool.
+     *
+     * @param password      The password to hash.
+     * @return              A future completed with the encoded hash.
+     */
+    public static CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> current.hash(password), executor);
+    }
+
+    /**
+     * Verifies a password on the hashing pool.
+     *
+     * @param password      The password to check.
+     * @param stored        The stored value: an encoded hash or a legacy plaintext password.
+     * @return              A future completed with true if the password matches.
+     */
+    public static CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        return CompletableFuture.supplyAsync(() -> verifyNow(password, stored), executor);
+    }
+
+    /**
+     * Hashes a password on the hashing pool, waiting for the result.
+     *
+     * @param password      The password to hash.
+     * @return              The encoded hash.
+     */
+    public static String hash(String password) {
+        return join(hashAsync(password));
+    }
+
+    /**
+     * Verifies a password on the hashing pool, waiting for the result.
+     *
+     * @param password      The password to check.
+     * @param stored        The stored value: an encoded hash or a legacy plaintext password.
+     * @return              True if the password matches.
+     */
+    public static boolean verify(String password, String stored) {
+        return join(verifyAsync(password, stored));
+    }
+
+    /**
+     * @param stored        The stored value: an encoded hash or a legacy plaintext password.
+     * @return              True if the value is plaintext or was not produced with the current algorithm and parameters.
+     */
+    public static boolean needsRehash(String stored) {
+        PasswordHasher hasher = hasherOf(stored);
+        return hasher != current || hasher.needsRehash(stored);
+    }
+
+    /**
+     * @param stored        A stored password value.
+     * @return              True if it is a hash of a known algorithm, false if it is a legacy plaintext password.
+     */
+    public static boolean isHash(String stored) {
+        return hasherOf(stored) != null;
+    }
+
+    /**
+     * Unlike {@link #isHash}, which only looks at the prefix, this parses the whole value: use it for hashes coming
+     * from outside, so that a malformed or absurdly expensive one is never stored and then fails or stalls every login.
+     *
+     * @param stored        A password value, possibly from an untrusted source.
+     * @return              True if it is a hash of a known algorithm with parameters within the supported bounds.
+     */
+    public static boolean isWellFormedHash(String stored) {
+        PasswordHasher hasher = hasherOf(stored);
+        return hasher != null && hasher.isWellFormed(stored);
+    }
+
+    private static boolean verifyNow(String password, String stored) {
+        PasswordHasher hasher = hasherOf(stored);
+
+        if (hasher == null) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return hasher.verify(password, stored);
+    }
+
+    private static PasswordHasher hasherOf(String stored) {
+        if (!stored.startsWith("$")) return null;
+
+        int end = stored.indexOf('$', 1);
+        return end < 0 ? null : hashers.get(stored.substring(1, end));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        }
+
+        catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+}
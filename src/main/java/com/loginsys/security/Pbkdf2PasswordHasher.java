@@ -0,0 +1,141 @@
+package com.loginsys.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * PBKDF2 with HMAC-SHA256, as provided by the JDK.
+ * Hashes look like {@code $pbkdf2-sha256$i=600000,l=32$<salt>$<hash>}, with salt and hash in unpadded Base64.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String ID = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+
+    /**
+     * Bounds of the hashes accepted from outside, such as imports: beyond these a single login costs seconds of CPU,
+     * or the hash is too weak to be worth keeping.
+     */
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final int MIN_SALT_LENGTH = 8;
+    private static final int MIN_KEY_LENGTH = 16;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder decoder = Base64.getDecoder();
+
+    private final int iterations;
+    private final int keyLength;
+
+    /**
+     * @param iterations    The number of PBKDF2 iterations of new hashes.
+     * @param keyLength     The length in bytes of new hashes.
+     */
+    public Pbkdf2PasswordHasher(int iterations, int keyLength) {
+        if (iterations < 1) throw new IllegalArgumentException("Iterations must be at least 1: " + iterations);
+        if (keyLength < MIN_KEY_LENGTH) throw new IllegalArgumentException("Key length must be at least 16 bytes: " + keyLength);
+
+        this.iterations = iterations;
+        this.keyLength = keyLength;
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public String hash(CharSequence password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+
+        byte[] hash = derive(password, salt, iterations, keyLength);
+
+        return "$%s$i=%d,l=%d$%s$%s".formatted(ID, iterations, keyLength, encoder.encodeToString(salt), encoder.encodeToString(hash));
+    }
+
+    @Override
+    public boolean verify(CharSequence password, String encoded) {
+        Parsed parsed = parse(encoded);
+        byte[] actual = derive(password, parsed.salt(), parsed.iterations(), parsed.hash().length);
+        return MessageDigest.isEqual(actual, parsed.hash());
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        Parsed parsed = parse(encoded);
+        return parsed.iterations() != iterations || parsed.hash().length != keyLength;
+    }
+
+    @Override
+    public boolean isWellFormed(String encoded) {
+        Parsed parsed;
+
+        try {
+            parsed = parse(encoded);
+        }
+
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        return parsed.iterations() <= MAX_ITERATIONS
+                && parsed.salt().length >= MIN_SALT_LENGTH
+                && parsed.hash().length >= MIN_KEY_LENGTH;
+    }
+
+    private record Parsed(int iterations, byte[] salt, byte[] hash) {
+    }
+
+    private static Parsed parse(String encoded) {
+        // "", id, parameters, salt, hash
+        String[] parts = encoded.split("\\$");
+
+        if (parts.length != 5 || !parts[1].equals(ID)) {
+            throw new IllegalArgumentException("Not a " + ID + " hash");
+        }
+
+        int iterations = 0;
+
+        for (String parameter : parts[2].split(",")) {
+            if (parameter.startsWith("i=")) {
+                iterations = Integer.parseInt(parameter.substring(2));
+            }
+        }
+
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Missing iterations in " + ID + " hash");
+        }
+
+        return new Parsed(iterations, decoder.decode(parts[3]), decoder.decode(parts[4]));
+    }
+
+    private static byte[] derive(CharSequence password, byte[] salt, int iterations, int keyLength) {
+        char[] chars = new char[password.length()];
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = password.charAt(i);
+        }
+
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, keyLength * 8);
+
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        }
+
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+
+        finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+}
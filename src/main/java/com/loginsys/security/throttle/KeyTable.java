@@ -0,0 +1,122 @@
+package com.loginsys.security.throttle;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded map from keys to their {@code ThrottleEntry}, split in independently locked stripes so that concurrent
+ * attempts on different keys rarely wait for each other. The locks are only held to find or insert an entry; the entries
+ * themselves are updated without locking.
+ * <p>
+ * Each stripe keeps its entries in access order: whenever a key is inserted, idle entries are dropped from the least
+ * recently used end. Only idle entries are ever dropped, since dropping any other would forgive its failures, lockout or
+ * spent tokens: flooding the table with fresh keys must not reset the state of the keys being throttled. When a stripe
+ * is full of entries which are not idle, new keys are refused until some of them become idle.
+ */
+final class KeyTable {
+
+    private static final class Stripe {
+        final LinkedHashMap<String, ThrottleEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final long idleNanos;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refusals = new LongAdder();
+
+    KeyTable(int maxKeys, long idleNanos) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(maxKeys, Runtime.getRuntime().availableProcessors() * 8)) * 2 - 1);
+
+        this.stripes = new Stripe[count];
+        this.stripeCapacity = Math.max(1, maxKeys / count);
+        this.idleNanos = idleNanos;
+
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @return      The entry of the key, created if missing; null if it is missing and its stripe is full.
+     */
+    ThrottleEntry get(String key, long now) {
+        Stripe stripe = stripeOf(key);
+        ThrottleEntry entry;
+
+        synchronized (stripe) {
+            entry = stripe.entries.get(key);
+
+            if (entry == null) {
+                evict(stripe, now);
+
+                if (stripe.entries.size() >= stripeCapacity) {
+                    refusals.increment();
+                    return null;
+                }
+
+                entry = new ThrottleEntry(now);
+                stripe.entries.put(key, entry);
+            }
+        }
+
+        entry.touch(now);
+        return entry;
+    }
+
+    /**
+     * @return      The entry of the key; null if it is not tracked.
+     */
+    ThrottleEntry peek(String key) {
+        Stripe stripe = stripeOf(key);
+
+        synchronized (stripe) {
+            return stripe.entries.get(key);
+        }
+    }
+
+    int size() {
+        int size = 0;
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+
+        return size;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    long refusals() {
+        return refusals.sum();
+    }
+
+    private Stripe stripeOf(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void evict(Stripe stripe, long now) {
+        Iterator<ThrottleEntry> eldest = stripe.entries.values().iterator();
+
+        while (eldest.hasNext()) {
+            ThrottleEntry entry = eldest.next();
+
+            // entries are in access order: every later one was used more recently, so none of them is idle either
+            if (!entry.unusedFor(now, idleNanos)) {
+                return;
+            }
+
+            // long unused, but still locked out or refilling its bucket: kept, and skipped
+            if (entry.idle(now, idleNanos)) {
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
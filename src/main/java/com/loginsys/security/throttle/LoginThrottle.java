@@ -0,0 +1,193 @@
+package com.loginsys.security.throttle;
+
+import com.loginsys.exceptions.TooManyLoginAttemptsException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits login attempts before they reach the database or the password hashing pool.
+ * <p>
+ * Every attempt takes a token from the bucket of its identity (email or username, case-insensitive) and, if known,
+ * from the bucket of its source (e.g. the client's IP address); successful attempts give them back, so legitimate users
+ * are only slowed down by their own failures. Identities failing {@code lockoutThreshold} times in a row are locked out,
+ * for a time doubling with each further failure.
+ * <p>
+ * At most {@code maxKeys} identities and sources are tracked, and only idle ones are forgotten to make room: while the
+ * tables are full of keys in use, attempts for new identities or from new sources are rejected.
+ * <p>
+ * Usage: call {@link #acquire(String, String)} before checking the credentials, then either
+ * {@link #recordSuccess(String, String)} or {@link #recordFailure(String)}.
+ */
+public class LoginThrottle {
+
+    private final ThrottleConfig config;
+    private final KeyTable identities;
+    private final KeyTable sources;
+    private final long origin = System.nanoTime();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder lockedOut = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+
+    public LoginThrottle(ThrottleConfig config) {
+        this.config = config;
+        this.identities = new KeyTable(config.maxKeys(), config.idleTimeout().toNanos());
+        this.sources = new KeyTable(config.maxKeys(), config.idleTimeout().toNanos());
+    }
+
+    /**
+     * Creates a throttle configured by the {@code loginsys.throttle.*} system properties (see {@link ThrottleConfig}).
+     *
+     * @return      The new throttle.
+     */
+    public static LoginThrottle fromSystemProperties() {
+        return new LoginThrottle(ThrottleConfig.fromSystemProperties());
+    }
+
+    /**
+     * Lets a login attempt through, or rejects it.
+     *
+     * @param identity      The email or username the attempt is for.
+     * @param source        Where the attempt comes from; null if unknown.
+     * @throws TooManyLoginAttemptsException    If the identity is locked out, a bucket is empty, or there is no room to
+     *                                          track a new identity or source.
+     */
+    public void acquire(String identity, String source) throws TooManyLoginAttemptsException {
+        if (!config.enabled()) {
+            return;
+        }
+
+        long now = now();
+        ThrottleEntry identityEntry = identities.get(normalize(identity), now);
+
+        if (identityEntry == null) {
+            throw refused();
+        }
+
+        long locked = identityEntry.lockedFor(now);
+
+        if (locked > 0) {
+            lockedOut.increment();
+            throw new TooManyLoginAttemptsException("Too many failed attempts, account temporarily locked.", Duration.ofNanos(locked));
+        }
+
+        ThrottleEntry sourceEntry = source != null ? sources.get(source, now) : null;
+
+        if (source != null && sourceEntry == null) {
+            throw refused();
+        }
+
+        if (sourceEntry != null) {
+            long wait = sourceEntry.tryTake(config.source(), now);
+
+            if (wait > 0) {
+                rateLimited.increment();
+                throw new TooManyLoginAttemptsException("Too many login attempts from this source.", Duration.ofNanos(wait));
+            }
+        }
+
+        long wait = identityEntry.tryTake(config.identity(), now);
+
+        if (wait > 0) {
+            if (sourceEntry != null) sourceEntry.refund(config.source(), now);
+
+            rateLimited.increment();
+            throw new TooManyLoginAttemptsException("Too many login attempts for this account.", Duration.ofNanos(wait));
+        }
+
+        allowed.increment();
+    }
+
+    /**
+     * Gives back the tokens of a successful attempt and clears the identity's failures.
+     *
+     * @param identity      The email or username the attempt was for.
+     * @param source        Where the attempt came from; null if unknown.
+     */
+    public void recordSuccess(String identity, String source) {
+        if (!config.enabled()) {
+            return;
+        }
+
+        long now = now();
+        ThrottleEntry identityEntry = identities.peek(normalize(identity));
+        ThrottleEntry sourceEntry = source != null ? sources.peek(source) : null;
+
+        if (identityEntry != null) {
+            identityEntry.succeed();
+            identityEntry.refund(config.identity(), now);
+        }
+
+        if (sourceEntry != null) {
+            sourceEntry.refund(config.source(), now);
+        }
+    }
+
+    /**
+     * Counts a failed attempt (wrong password or unknown identity), locking the identity out past the threshold.
+     *
+     * @param identity      The email or username the attempt was for.
+     */
+    public void recordFailure(String identity) {
+        if (!config.enabled()) {
+            return;
+        }
+
+        long now = now();
+        ThrottleEntry entry = identities.get(normalize(identity), now);
+
+        // not tracked, so its attempt could not have been let through
+        if (entry == null) {
+            return;
+        }
+
+        int failures = entry.fail();
+
+        if (failures >= config.lockoutThreshold()) {
+            long base = config.lockoutBase().toNanos();
+            long max = config.lockoutMax().toNanos();
+            int doublings = failures - config.lockoutThreshold();
+
+            // shifting further would overflow, and the result would be past the maximum anyway
+            long lockout = doublings < Long.numberOfLeadingZeros(base) - 1 ? Math.min(base << doublings, max) : max;
+
+            entry.lockUntil(now + lockout);
+            lockouts.increment();
+        }
+    }
+
+    /**
+     * @return      A snapshot of the throttle counters.
+     */
+    public ThrottleStats stats() {
+        return new ThrottleStats(
+                identities.size(),
+                sources.size(),
+                allowed.sum(),
+                rateLimited.sum(),
+                lockedOut.sum(),
+                lockouts.sum(),
+                identities.evictions() + sources.evictions(),
+                identities.refusals() + sources.refusals()
+        );
+    }
+
+    /**
+     * Keys only become idle after {@code idleTimeout} without use, so that is the longest a new key may have to wait.
+     */
+    private TooManyLoginAttemptsException refused() {
+        rateLimited.increment();
+        return new TooManyLoginAttemptsException("Too many login attempts, try again later.", config.idleTimeout());
+    }
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+
+    private static String normalize(String identity) {
+        return identity.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,22 @@
+package com.loginsys.security.throttle;
+
+/**
+ * A token bucket: up to {@code burst} attempts at once, then {@code perMinute} attempts per minute.
+ *
+ * @param burst         The bucket capacity.
+ * @param perMinute     How many tokens are put back in the bucket each minute.
+ */
+public record RateLimit(int burst, int perMinute) {
+
+    public RateLimit {
+        if (burst < 1) throw new IllegalArgumentException("Burst must be at least 1: " + burst);
+        if (perMinute < 1) throw new IllegalArgumentException("Rate must be at least 1 per minute: " + perMinute);
+    }
+
+    /**
+     * @return      The time it takes to put one token back, in nanoseconds.
+     */
+    long intervalNanos() {
+        return 60_000_000_000L / perMinute;
+    }
+}
@@ -0,0 +1,57 @@
+package com.loginsys.security.throttle;
+
+import java.time.Duration;
+
+/**
+ * The tunables of a {@code LoginThrottle}.
+ *
+ * @param enabled               False to let every attempt through.
+ * @param identity              The limit of attempts on a single email or username, from any source.
+ * @param source                The limit of attempts from a single source (e.g. an IP address), on any identity.
+ * @param lockoutThreshold      Consecutive failures of an identity after which it gets locked out.
+ * @param lockoutBase           The first lockout; each further failure doubles it.
+ * @param lockoutMax            The longest lockout.
+ * @param maxKeys               The maximum number of identities, and of sources, tracked at once.
+ * @param idleTimeout           How long a key may stay unused before its state is dropped.
+ */
+public record ThrottleConfig(boolean enabled, RateLimit identity, RateLimit source, int lockoutThreshold,
+                             Duration lockoutBase, Duration lockoutMax, int maxKeys, Duration idleTimeout) {
+
+    public ThrottleConfig {
+        if (lockoutThreshold < 1) throw new IllegalArgumentException("Lockout threshold must be at least 1: " + lockoutThreshold);
+        if (maxKeys < 1) throw new IllegalArgumentException("Max keys must be at least 1: " + maxKeys);
+    }
+
+    /**
+     * Reads the configuration from the {@code loginsys.throttle.*} system properties, falling back to these defaults:
+     * <ul>
+     *     <li>{@code loginsys.throttle.enabled} (default: true)</li>
+     *     <li>{@code loginsys.throttle.identity.burst} and {@code .perMinute} (default: 5 and 10)</li>
+     *     <li>{@code loginsys.throttle.source.burst} and {@code .perMinute} (default: 100 and 600)</li>
+     *     <li>{@code loginsys.throttle.lockout.threshold} (default: 5 failures)</li>
+     *     <li>{@code loginsys.throttle.lockout.baseMs} and {@code .maxMs} (default: 30 seconds and 15 minutes)</li>
+     *     <li>{@code loginsys.throttle.maxKeys} (default: 100000)</li>
+     *     <li>{@code loginsys.throttle.idleMs} (default: 15 minutes)</li>
+     * </ul>
+     *
+     * @return      The resulting configuration.
+     */
+    public static ThrottleConfig fromSystemProperties() {
+        return new ThrottleConfig(
+                Boolean.parseBoolean(System.getProperty("loginsys.throttle.enabled", "true")),
+                new RateLimit(
+                        Integer.getInteger("loginsys.throttle.identity.burst", 5),
+                        Integer.getInteger("loginsys.throttle.identity.perMinute", 10)
+                ),
+                new RateLimit(
+                        Integer.getInteger("loginsys.throttle.source.burst", 100),
+                        Integer.getInteger("loginsys.throttle.source.perMinute", 600)
+                ),
+                Integer.getInteger("loginsys.throttle.lockout.threshold", 5),
+                Duration.ofMillis(Long.getLong("loginsys.throttle.lockout.baseMs", 30_000)),
+                Duration.ofMillis(Long.getLong("loginsys.throttle.lockout.maxMs", 900_000)),
+                Integer.getInteger("loginsys.throttle.maxKeys", 100_000),
+                Duration.ofMillis(Long.getLong("loginsys.throttle.idleMs", 900_000))
+        );
+    }
+}
@@ -0,0 +1,116 @@
+package com.loginsys.security.throttle;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The state of one identity or source: a token bucket, the consecutive failures and the lockout deadline.
+ * Every field is updated without locking, with compare-and-set loops or plain volatile writes.
+ * <p>
+ * The bucket is stored as the time at which it will be full again (the "theoretical arrival time" of the generic cell
+ * rate algorithm), so that taking a token is a single compare-and-set on one long. All times are in nanoseconds from the
+ * clock of the owning {@code LoginThrottle}.
+ */
+final class ThrottleEntry {
+
+    private static final VarHandle FULL_AT;
+    private static final VarHandle FAILURES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            FULL_AT = lookup.findVarHandle(ThrottleEntry.class, "fullAt", long.class);
+            FAILURES = lookup.findVarHandle(ThrottleEntry.class, "failures", int.class);
+        }
+
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long fullAt;
+    private volatile int failures;
+    private volatile long lockedUntil;
+    private volatile long lastSeen;
+
+    ThrottleEntry(long now) {
+        this.fullAt = now;
+        this.lastSeen = now;
+    }
+
+    /**
+     * Takes a token from the bucket.
+     *
+     * @return      0 if a token was taken; otherwise how long to wait for the next one, in nanoseconds.
+     */
+    long tryTake(RateLimit limit, long now) {
+        long interval = limit.intervalNanos();
+        long tolerance = interval * (limit.burst() - 1);
+
+        while (true) {
+            long current = fullAt;
+            long base = Math.max(current, now);
+
+            if (base - now > tolerance) {
+                return base - now - tolerance;
+            }
+
+            if (FULL_AT.compareAndSet(this, current, base + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Puts back a token taken by {@link #tryTake(RateLimit, long)}.
+     */
+    void refund(RateLimit limit, long now) {
+        long interval = limit.intervalNanos();
+
+        while (true) {
+            long current = fullAt;
+
+            if (current <= now || FULL_AT.compareAndSet(this, current, Math.max(now, current - interval))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return      The number of consecutive failures, this one included.
+     */
+    int fail() {
+        return (int) FAILURES.getAndAdd(this, 1) + 1;
+    }
+
+    void succeed() {
+        if (failures != 0) failures = 0;
+    }
+
+    long lockedFor(long now) {
+        return Math.max(0, lockedUntil - now);
+    }
+
+    void lockUntil(long deadline) {
+        lockedUntil = deadline;
+    }
+
+    void touch(long now) {
+        lastSeen = now;
+    }
+
+    /**
+     * @return      True if the key was unused for longer than {@code idleNanos}.
+     */
+    boolean unusedFor(long now, long idleNanos) {
+        return now - lastSeen > idleNanos;
+    }
+
+    /**
+     * @return      True if the key was unused for longer than {@code idleNanos}, with a full bucket and no lockout,
+     *              so that dropping it does not forgive anything.
+     */
+    boolean idle(long now, long idleNanos) {
+        return unusedFor(now, idleNanos) && fullAt <= now && lockedUntil <= now;
+    }
+}
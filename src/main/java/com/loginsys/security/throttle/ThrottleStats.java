@@ -0,0 +1,24 @@
+package com.loginsys.security.throttle;
+
+/**
+ * A point-in-time snapshot of a {@code LoginThrottle} counters.
+ *
+ * @param identities        Identities currently tracked.
+ * @param sources           Sources currently tracked.
+ * @param allowed           Attempts let through.
+ * @param rateLimited       Attempts rejected because a token bucket was empty, or a new key could not be tracked.
+ * @param lockedOut         Attempts rejected because the identity was locked out.
+ * @param lockouts          Lockouts started.
+ * @param evictions         Idle keys dropped to make room for new ones.
+ * @param refusals          New keys not tracked because no key could be dropped to make room for them.
+ */
+public record ThrottleStats(int identities, int sources, long allowed, long rateLimited, long lockedOut,
+                            long lockouts, long evictions, long refusals) {
+
+    @Override
+    public String toString() {
+        return "identities=%d sources=%d allowed=%d rateLimited=%d lockedOut=%d lockouts=%d evictions=%d refusals=%d".formatted(
+                identities, sources, allowed, rateLimited, lockedOut, lockouts, evictions, refusals
+        );
+    }
+}
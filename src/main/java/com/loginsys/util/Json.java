@@ -0,0 +1,157 @@
+package com.loginsys.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A minimal JSON codec for flat objects of string values, such as {@code {"identity": "someone", "password": "..."}},
+ * as exchanged by the HTTP API and stored in JSON Lines user files.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * @param json      A JSON object whose values are all strings.
+     * @return          Its members, in order.
+     * @throws IllegalArgumentException     If the text is not such an object.
+     */
+    public static Map<String, String> parse(String json) throws IllegalArgumentException {
+        Map<String, String> members = new LinkedHashMap<>();
+        int[] position = {skipWhitespace(json, 0)};
+
+        expect(json, position, '{');
+
+        if (peek(json, position) == '}') {
+            position[0]++;
+        }
+
+        else {
+            while (true) {
+                String name = readString(json, position);
+                expect(json, position, ':');
+                members.put(name, readString(json, position));
+
+                if (peek(json, position) == ',') {
+                    position[0]++;
+                    continue;
+                }
+
+                expect(json, position, '}');
+                break;
+            }
+        }
+
+        if (skipWhitespace(json, position[0]) != json.length()) {
+            throw new IllegalArgumentException("Unexpected content after the JSON object");
+        }
+
+        return members;
+    }
+
+    /**
+     * @param members   The members of the object.
+     * @return          The JSON representation of a flat object of strings.
+     */
+    public static String write(Map<String, String> members) {
+        StringBuilder json = new StringBuilder("{");
+
+        members.forEach((name, value) -> {
+            if (json.length() > 1) json.append(',');
+            writeString(json, name);
+            json.append(':');
+            writeString(json, value);
+        });
+
+        return json.append('}').toString();
+    }
+
+    private static char peek(String json, int[] position) {
+        position[0] = skipWhitespace(json, position[0]);
+
+        if (position[0] >= json.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON");
+        }
+
+        return json.charAt(position[0]);
+    }
+
+    private static void expect(String json, int[] position, char expected) {
+        if (peek(json, position) != expected) {
+            throw new IllegalArgumentException("Expected '%c' at position %d".formatted(expected, position[0]));
+        }
+
+        position[0]++;
+    }
+
+    private static String readString(String json, int[] position) {
+        expect(json, position, '"');
+        StringBuilder value = new StringBuilder();
+
+        for (int i = position[0]; i < json.length(); i++) {
+            char c = json.charAt(i);
+
+            if (c == '"') {
+                position[0] = i + 1;
+                return value.toString();
+            }
+
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+
+            if (++i >= json.length()) break;
+
+            switch (json.charAt(i)) {
+                case '"' -> value.append('"');
+                case '\\' -> value.append('\\');
+                case '/' -> value.append('/');
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (i + 4 >= json.length()) throw new IllegalArgumentException("Truncated unicode escape");
+                    value.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                }
+                default -> throw new IllegalArgumentException("Invalid escape at position " + i);
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private static void writeString(StringBuilder json, String value) {
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) json.append("\\u%04x".formatted((int) c));
+                    else json.append(c);
+                }
+            }
+        }
+
+        json.append('"');
+    }
+
+    private static int skipWhitespace(String json, int position) {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+
+        return position;
+    }
+}
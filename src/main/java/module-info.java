@@ -2,7 +2,11 @@ module com.loginsys.login_system {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.net.http;
+    requires jdk.httpserver;
+    requires java.management;
 
     opens com.loginsys to javafx.fxml;
     exports com.loginsys;
+    exports com.loginsys.metrics to java.management;
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.loginsys.database.cache;
+
+import com.loginsys.database.property.Property;
+import com.loginsys.management.user.UserSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserCacheTest {
+
+    private static UserSnapshot user(int n) {
+        return new UserSnapshot("id" + n, "user" + n + "@example.com", "user" + n, "$hash$");
+    }
+
+    @Test
+    void findsCachedRowsByEveryKey() {
+        UserCache cache = new UserCache(100, Duration.ofMinutes(1));
+        cache.put(user(1), cache.beginLoad(), 0);
+
+        assertEquals(user(1), cache.get("id1"));
+        assertEquals(user(1), cache.getBy(Property.EMAIL, "user1@example.com"));
+        assertEquals(user(1), cache.getBy(Property.USERNAME, "user1"));
+
+        cache.invalidate("id1");
+
+        assertNull(cache.get("id1"));
+        assertNull(cache.getBy(Property.USERNAME, "user1"));
+    }
+
+    @Test
+    void dropsLoadRacingWithInvalidationOfItsRow() {
+        UserCache cache = new UserCache(100, Duration.ofMinutes(1));
+
+        long token = cache.beginLoad();
+        cache.invalidate("id1");
+        cache.put(user(1), token, 0);
+
+        assertNull(cache.get("id1"));
+
+        cache.put(user(1), cache.beginLoad(), 0);
+        assertEquals(user(1), cache.get("id1"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedRowsPastCapacity() {
+        UserCache cache = new UserCache(100, Duration.ofMinutes(1));
+
+        for (int n = 0; n < 1_000; n++) {
+            cache.put(user(n), cache.beginLoad(), 0);
+        }
+
+        assertTrue(cache.stats().size() <= 100);
+        assertEquals(user(999), cache.get("id999"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.loginsys.database.pool;
+
+import com.loginsys.database.schema.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class ConnectionPoolTest {
+
+    @TempDir
+    Path directory;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void open() {
+        String url = "jdbc:sqlite:" + directory.resolve("users.db");
+        SchemaMigrator.migrate(url);
+
+        PoolConfig config = new PoolConfig(2, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofSeconds(30));
+        pool = new ConnectionPool(url, config, SchemaMigrator.CONNECTION_PRAGMAS);
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    @Test
+    void closingTwiceGivesTheConnectionBackOnce() {
+        PooledConnection pooled = pool.borrow();
+        pooled.close();
+        pooled.close();
+
+        assertEquals(2, pool.availablePermits());
+        assertEquals(0, pool.metrics().active());
+        assertEquals(1, pool.metrics().idle());
+
+        // the double close did not queue the same connection twice, so two borrowers get two connections
+        try (PooledConnection first = pool.borrow(); PooledConnection second = pool.borrow()) {
+            assertNotSame(first, second);
+            assertEquals(0, pool.availablePermits());
+        }
+
+        assertEquals(2, pool.availablePermits());
+        assertEquals(2, pool.metrics().idle());
+    }
+}
@@ -0,0 +1,189 @@
+package com.loginsys.database.store;
+
+import com.loginsys.database.pool.ConnectionPool;
+import com.loginsys.database.pool.PoolConfig;
+import com.loginsys.database.pool.PooledConnection;
+import com.loginsys.database.schema.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the group commit against a temporary database. A long {@code maxDelay} makes every write submitted in a row
+ * land in the same batch.
+ */
+class GroupCommitQueueTest {
+
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    @TempDir
+    Path directory;
+
+    private ConnectionPool pool;
+    private GroupCommitQueue queue;
+
+    private static class ConflictException extends RuntimeException {
+        ConflictException(String message) {
+            super(message);
+        }
+    }
+
+    @BeforeEach
+    void open() {
+        String url = "jdbc:sqlite:" + directory.resolve("users.db");
+        SchemaMigrator.migrate(url);
+
+        PoolConfig config = new PoolConfig(1, Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofSeconds(30));
+        pool = new ConnectionPool(url, config, SchemaMigrator.WRITER_PRAGMAS);
+        queue = new GroupCommitQueue(
+                pool,
+                new GroupCommitConfig(true, 64, Duration.ofMillis(500), 1_000),
+                e -> isConflict(e) ? new ConflictException(e.getMessage()) : new RuntimeException(e),
+                GroupCommitQueueTest::isConflict
+        );
+    }
+
+    @AfterEach
+    void close() {
+        queue.close();
+        pool.close();
+    }
+
+    @Test
+    void commitsQueuedWritesTogether() throws SQLException {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            futures.add(queue.submit(insert("user" + i), false));
+        }
+
+        futures.forEach(CompletableFuture::join);
+
+        GroupCommitStats stats = queue.stats();
+        assertEquals(1, stats.batches());
+        assertEquals(10, stats.writes());
+        assertEquals(10, stats.largestBatch());
+        assertEquals(10, count());
+    }
+
+    @Test
+    void rejectsConflictingWriteAlone() throws SQLException {
+        CompletableFuture<Integer> first = queue.submit(insert("alice"), false);
+        CompletableFuture<Integer> taken = queue.submit(insert("alice"), false);
+        CompletableFuture<Integer> last = queue.submit(insert("bob"), false);
+
+        assertEquals(1, first.join());
+        assertEquals(1, last.join());
+        assertInstanceOf(ConflictException.class, assertThrows(CompletionException.class, taken::join).getCause());
+
+        GroupCommitStats stats = queue.stats();
+        assertEquals(1, stats.batches());
+        assertEquals(1, stats.conflicts());
+        assertEquals(0, stats.failedBatches());
+        assertEquals(2, count());
+    }
+
+    @Test
+    void rollsBackEveryStatementOfConflictingWrite() throws SQLException {
+        CompletableFuture<Integer> first = queue.submit(insert("alice"), false);
+
+        // the first insert succeeds, the second conflicts with the write above: neither must stay
+        CompletableFuture<Integer> both = queue.submit(pooled -> insert("carol").apply(pooled) + insert("alice").apply(pooled), true);
+        CompletableFuture<Integer> last = queue.submit(insert("bob"), true);
+
+        assertEquals(1, first.join());
+        assertEquals(1, last.join());
+        assertInstanceOf(ConflictException.class, assertThrows(CompletionException.class, both::join).getCause());
+
+        assertEquals(1, queue.stats().batches());
+        assertEquals(2, count());
+        assertEquals(0, count("carol"));
+    }
+
+    @Test
+    void failsCollectedWritesWhenWriterIsInterrupted() throws SQLException, InterruptedException {
+        CompletableFuture<Integer> first = queue.submit(insert("alice"), false);
+        CompletableFuture<Integer> second = queue.submit(insert("bob"), false);
+
+        // both writes are out of the queue, so the writer is waiting for more of them in the same batch
+        Thread writer = writerThread();
+
+        while (queue.stats().queued() > 0 || writer.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+
+        writer.interrupt();
+
+        // a write lost with its batch would never complete: time out rather than hang
+        first.orTimeout(5, TimeUnit.SECONDS);
+        second.orTimeout(5, TimeUnit.SECONDS);
+
+        assertInstanceOf(RejectedExecutionException.class, assertThrows(CompletionException.class, first::join).getCause());
+        assertInstanceOf(RejectedExecutionException.class, assertThrows(CompletionException.class, second::join).getCause());
+        assertEquals(1, queue.stats().failedBatches());
+        assertEquals(0, count());
+
+        // the writer survives the interruption
+        assertEquals(1, queue.submit(insert("carol"), false).join());
+    }
+
+    private static Thread writerThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("group-commit-writer") && thread.isAlive())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static GroupCommitQueue.Write<Integer> insert(String username) {
+        return pooled -> {
+            try (PreparedStatement stm = pooled.connection().prepareStatement(
+                    "insert into Users (id, email, username, password) values (?, ?, ?, ?)")) {
+
+                stm.setString(1, "id-" + username);
+                stm.setString(2, username + "@example.com");
+                stm.setString(3, username);
+                stm.setString(4, "$hash$");
+                return stm.executeUpdate();
+            }
+        };
+    }
+
+    private int count() throws SQLException {
+        return count(null);
+    }
+
+    private int count(String username) throws SQLException {
+        try (PooledConnection pooled = pool.borrow();
+             PreparedStatement stm = pooled.connection().prepareStatement(
+                     "select count(*) from Users where ? is null or username = ?")) {
+
+            stm.setString(1, username);
+            stm.setString(2, username);
+
+            try (ResultSet rs = stm.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static boolean isConflict(SQLException e) {
+        return (e.getErrorCode() & 0xff) == SQLITE_CONSTRAINT;
+    }
+}
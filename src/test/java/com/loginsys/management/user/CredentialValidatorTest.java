@@ -0,0 +1,122 @@
+package com.loginsys.management.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@code CredentialValidator} accepts exactly the strings the {@code User} patterns accept,
+ * on hand-picked edge cases and on random strings built from the characters the patterns care about.
+ */
+class CredentialValidatorTest {
+
+    private static final int SAMPLES = 200_000;
+    private static final long SEED = 42;
+
+    private static final String[] EDGE_CASES = {
+            "", "a", "@", "a@b", "a@b.c", "a@b.co", "a@b.coop", "a@b.coops", "a@.co", "a@b..co", "a@b.co.",
+            ".@b.co", "a.@b.co", "a@-.co", "a@b-.c-", "a@@b.co", "@b.co", "a b@c.de", "a@b.c_", "a@b.c-d",
+            "é@b.co", "a@é.co", "a@b.çom", "abc", "ab", "abcdefghijklmnopqrstuvwxy", "abcdefghijklmnopqrstuvwxyz",
+            "abc-", "abc\n", "aaaaaaaaaaaaaa", "aaaaaaaaaaaaaaa", "aaaaaaaaaaaaaaa\n", "aaaaaaaaaaaaa\r\n",
+            "aaaaaaaaaaaaaa ", "aaaaaaaaaaaaaaa\u0085", "😀".repeat(14), "😀".repeat(15),
+            "😀".repeat(128), "😀".repeat(129), "a".repeat(128), "a".repeat(129),
+            "\uD83D".repeat(15), "\uDE00".repeat(128), "\uDE00\uD83D".repeat(64), "\uDE00\uD83D".repeat(65),
+            "a".repeat(127) + "\uD83D", "a".repeat(127) + "😀"
+    };
+
+    private static final char[] ALPHABET = {
+            'a', 'Z', '0', '9', '_', '.', '@', '-', ' ', '\n', '\r', '\u0085', '\u2028', '\u2029', '\t',
+            'é', ' ', '\uD83D', '\uDE00', '+'
+    };
+
+    private static final List<String> INPUTS = inputs();
+
+    @Test
+    void emailMatchesPattern() {
+        assertSameAnswers(User.EMAIL_CHECKER, CredentialValidator::isValidEmail);
+    }
+
+    @Test
+    void usernameMatchesPattern() {
+        assertSameAnswers(User.USERNAME_CHECKER, CredentialValidator::isValidUsername);
+    }
+
+    @Test
+    void passwordMatchesPattern() {
+        assertSameAnswers(User.PASSWORD_CHECKER, CredentialValidator::isValidPassword);
+    }
+
+    private static void assertSameAnswers(Pattern pattern, Predicate<String> validator) {
+        for (String input : INPUTS) {
+            boolean expected = pattern.matcher(input).matches();
+            assertEquals(expected, validator.test(input), () -> "\"" + escape(input) + "\"");
+        }
+    }
+
+    private static List<String> inputs() {
+        List<String> inputs = new ArrayList<>(List.of(EDGE_CASES));
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            inputs.add(randomInput(random));
+        }
+
+        return inputs;
+    }
+
+    /**
+     * Builds either a mostly well-formed email, or a string of random length over {@link #ALPHABET},
+     * so that every validator sees both near misses and plain noise.
+     */
+    private static String randomInput(SplittableRandom random) {
+        StringBuilder builder = new StringBuilder();
+
+        if (random.nextBoolean()) {
+            builder.append(randomWord(random, 0, 4)).append(random.nextInt(8) == 0 ? "" : "@");
+
+            int labels = random.nextInt(1, 4);
+
+            for (int i = 0; i < labels; i++) {
+                builder.append(randomWord(random, 0, 6)).append(i + 1 < labels || random.nextInt(8) == 0 ? "." : "");
+            }
+        }
+
+        else {
+            int length = random.nextInt(8) == 0 ? random.nextInt(300) : random.nextInt(32);
+
+            for (int i = 0; i < length; i++) {
+                builder.append(ALPHABET[random.nextInt(random.nextInt(4) == 0 ? ALPHABET.length : 5)]);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String randomWord(SplittableRandom random, int min, int max) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(min, max + 1);
+
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(random.nextInt(6) == 0 ? ALPHABET.length : 8)]);
+        }
+
+        return builder.toString();
+    }
+
+    private static String escape(String input) {
+        StringBuilder builder = new StringBuilder();
+
+        for (char c : input.toCharArray()) {
+            if (c >= 0x20 && c < 0x7f) builder.append(c);
+            else builder.append(String.format("\\u%04x", (int) c));
+        }
+
+        return builder.toString();
+    }
+}
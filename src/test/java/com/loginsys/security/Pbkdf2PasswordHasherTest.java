@@ -0,0 +1,44 @@
+package com.loginsys.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that hashes from untrusted sources are only accepted when they can be verified at a bounded cost.
+ */
+class Pbkdf2PasswordHasherTest {
+
+    private static final String SALT = "AAAAAAAAAAAAAAAAAAAAAA";
+    private static final String HASH = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    private final Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(1_000, 32);
+
+    @Test
+    void acceptsItsOwnHashes() {
+        String encoded = hasher.hash("correct horse battery staple");
+
+        assertTrue(hasher.isWellFormed(encoded));
+        assertTrue(hasher.verify("correct horse battery staple", encoded));
+    }
+
+    @Test
+    void rejectsMalformedOrUnboundedHashes() {
+        String[] invalid = {
+                "$pbkdf2-sha256$garbage",
+                "$pbkdf2-sha256$l=32$" + SALT + "$" + HASH,
+                "$pbkdf2-sha256$i=abc,l=32$" + SALT + "$" + HASH,
+                "$pbkdf2-sha256$i=99999999999,l=32$" + SALT + "$" + HASH,
+                "$pbkdf2-sha256$i=2000000000,l=32$" + SALT + "$" + HASH,
+                "$pbkdf2-sha256$i=1000,l=32$$" + HASH,
+                "$pbkdf2-sha256$i=1000,l=32$" + SALT + "$AAAA",
+                "$pbkdf2-sha256$i=1000,l=32$" + SALT + "$!!!!",
+                "$other$i=1000,l=32$" + SALT + "$" + HASH
+        };
+
+        for (String encoded : invalid) {
+            assertFalse(hasher.isWellFormed(encoded), encoded);
+        }
+    }
+}
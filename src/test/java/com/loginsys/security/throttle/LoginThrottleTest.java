@@ -0,0 +1,57 @@
+package com.loginsys.security.throttle;
+
+import com.loginsys.exceptions.TooManyLoginAttemptsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the bounded key tables never forget a lockout to make room for new keys.
+ */
+class LoginThrottleTest {
+
+    private static final int MAX_KEYS = 8;
+
+    private final LoginThrottle throttle = new LoginThrottle(new ThrottleConfig(
+            true,
+            new RateLimit(5, 10),
+            new RateLimit(100, 600),
+            1,
+            Duration.ofMinutes(5),
+            Duration.ofMinutes(15),
+            MAX_KEYS,
+            Duration.ofMinutes(15)
+    ));
+
+    @Test
+    void floodOfNewIdentitiesKeepsLockout() {
+        throttle.acquire("victim", null);
+        throttle.recordFailure("victim");
+
+        int refused = 0;
+
+        for (int i = 0; i < 1_000; i++) {
+            try {
+                throttle.acquire("flood" + i, null);
+                throttle.recordFailure("flood" + i);
+            }
+
+            catch (TooManyLoginAttemptsException e) {
+                refused++;
+            }
+        }
+
+        TooManyLoginAttemptsException locked = assertThrows(TooManyLoginAttemptsException.class, () -> throttle.acquire("victim", null));
+        assertTrue(locked.getMessage().contains("locked"), locked.getMessage());
+
+        ThrottleStats stats = throttle.stats();
+        assertTrue(stats.identities() <= MAX_KEYS);
+        assertEquals(0, stats.evictions());
+        assertEquals(refused, stats.refusals());
+        assertTrue(refused > 0);
+    }
+}